@@ -10,6 +10,7 @@ import org.example.accounting.domain.Account;
 import org.example.accounting.domain.AccountType;
 import java.math.BigDecimal;
 import org.example.accounting.repository.CommodityRepository;
+import org.example.accounting.service.ChangeSequenceService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.boot.CommandLineRunner;
@@ -29,15 +30,18 @@ public class DataInitializer implements CommandLineRunner {
     private final AppUserRepository userRepository;
     private final AccountRepository accountRepository;
     private final PasswordEncoder passwordEncoder;
+    private final ChangeSequenceService changeSequenceService;
 
     public DataInitializer(CommodityRepository commodityRepository,
                           AppUserRepository userRepository,
                           AccountRepository accountRepository,
-                          PasswordEncoder passwordEncoder) {
+                          PasswordEncoder passwordEncoder,
+                          ChangeSequenceService changeSequenceService) {
         this.commodityRepository = commodityRepository;
         this.userRepository = userRepository;
         this.accountRepository = accountRepository;
         this.passwordEncoder = passwordEncoder;
+        this.changeSequenceService = changeSequenceService;
     }
 
     @Override
@@ -50,6 +54,8 @@ public class DataInitializer implements CommandLineRunner {
         initEmployeeUser();
         // 初始化默认账户（现金等），以保证空数据库也能运行
         initDefaultAccounts();
+        // 初始化变更序列（交易变更流版本号）
+        changeSequenceService.ensure(ChangeSequenceService.TRANSACTIONS, 0L);
         log.info("数据初始化完成");
     }
 
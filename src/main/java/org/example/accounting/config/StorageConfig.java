@@ -0,0 +1,46 @@
+package org.example.accounting.config;
+
+import java.nio.file.Paths;
+import java.time.Duration;
+import org.example.accounting.service.StorageBackend;
+import org.example.accounting.service.impl.LocalStorageBackend;
+import org.example.accounting.service.impl.S3StorageBackend;
+import org.example.accounting.service.impl.TieredStorageBackend;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 附件存储后端配置
+ * 按 file.storage.backend 选择：local（默认）、s3 或 tiered（本地热层 + S3 冷层）。
+ */
+@Configuration
+public class StorageConfig {
+
+    @Bean
+    public StorageBackend storageBackend(@Value("${file.upload-dir:uploads}") String uploadDir,
+                                         @Value("${file.storage.backend:local}") String type,
+                                         @Value("${file.storage.s3.endpoint:http://localhost:9000}") String endpoint,
+                                         @Value("${file.storage.s3.region:us-east-1}") String region,
+                                         @Value("${file.storage.s3.bucket:accounting-attachments}") String bucket,
+                                         @Value("${file.storage.s3.access-key:}") String accessKey,
+                                         @Value("${file.storage.s3.secret-key:}") String secretKey,
+                                         @Value("${file.storage.tiered.cold-after-days:90}") long coldAfterDays,
+                                         @Value("${file.storage.tiered.migrate-interval-minutes:60}") long intervalMinutes) {
+        LocalStorageBackend local = new LocalStorageBackend(Paths.get(uploadDir));
+        switch (type.toLowerCase()) {
+            case "local":
+                return local;
+            case "s3":
+                return new S3StorageBackend(endpoint, region, bucket, accessKey, secretKey);
+            case "tiered":
+                TieredStorageBackend tiered = new TieredStorageBackend(local,
+                        new S3StorageBackend(endpoint, region, bucket, accessKey, secretKey),
+                        Duration.ofDays(coldAfterDays));
+                tiered.start(Duration.ofMinutes(intervalMinutes));
+                return tiered;
+            default:
+                throw new IllegalArgumentException("未知的附件存储后端: " + type);
+        }
+    }
+}
@@ -0,0 +1,343 @@
+package org.example.accounting.controller;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Locale;
+import java.util.zip.GZIPInputStream;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+
+/**
+ * 本地文件下载：条件请求（ETag/Last-Modified → 304）、单区间 Range/If-Range（206/416）与长期缓存头。
+ * 文件体优先交给容器 sendfile（Tomcat NIO 支持时通过请求属性移交，内核直接拷贝到 socket），
+ * 否则用 {@link FileChannel#transferTo} 写出；不在本地的内容（对象存储）按区间从 {@link RangeSource} 读取。
+ * 只用于内容不会变化的文件（存储名为 UUID 或内容哈希）。
+ * 以 GZIP 静态压缩存储的文件走 {@link #serveGzip}，按 Accept-Encoding 透传或解压。
+ */
+final class FileRangeSupport {
+
+    private static final String SENDFILE_SUPPORTED = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    /**
+     * 内容不可变，浏览器可长期缓存；附件需要登录访问，只允许私有缓存。
+     */
+    private static final String CACHE_CONTROL = "private, max-age=31536000, immutable";
+
+    private FileRangeSupport() {
+    }
+
+    /**
+     * 按区间打开内容的数据源（本地文件或对象存储）。
+     */
+    @FunctionalInterface
+    interface RangeSource {
+
+        /**
+         * 从 start 开始读取；返回的流至少包含 count 字节，只会读取前 count 字节。
+         */
+        InputStream open(long start, long count) throws IOException;
+    }
+
+    /**
+     * 写出本地文件。
+     *
+     * @param disposition  Content-Disposition（下载为 attachment，预览为 inline）
+     * @param etag         强 ETag（含引号）
+     * @param lastModified 最后修改时间（毫秒）
+     */
+    static void serve(HttpServletRequest request, HttpServletResponse response, Path file, long length,
+            String contentType, ContentDisposition disposition, String etag, long lastModified) throws IOException {
+        long[] range = prepare(request, response, length, contentType, disposition, etag, lastModified);
+        if (range == null) {
+            return;
+        }
+        long start = range[0];
+        long count = range[1];
+        if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORTED))) {
+            request.setAttribute(SENDFILE_FILENAME, file.toAbsolutePath().toString());
+            request.setAttribute(SENDFILE_START, start);
+            request.setAttribute(SENDFILE_END, start + count);
+            return;
+        }
+        transfer(file, start, count, response);
+    }
+
+    /**
+     * 写出不在本地磁盘上的内容（对象存储），条件请求与 Range 处理同 {@link #serve(HttpServletRequest,
+     * HttpServletResponse, Path, long, String, ContentDisposition, String, long)}，区间直接向数据源按范围读取。
+     */
+    static void serve(HttpServletRequest request, HttpServletResponse response, RangeSource source, long length,
+            String contentType, ContentDisposition disposition, String etag, long lastModified) throws IOException {
+        long[] range = prepare(request, response, length, contentType, disposition, etag, lastModified);
+        if (range == null) {
+            return;
+        }
+        try (InputStream in = source.open(range[0], range[1])) {
+            copy(in, response, range[1]);
+        }
+    }
+
+    /**
+     * 写出缓存与条件请求相关的头并解析 Range。
+     *
+     * @return {start, count}；null 表示响应已完成（304、416、HEAD 或空内容）
+     */
+    private static long[] prepare(HttpServletRequest request, HttpServletResponse response, long length,
+            String contentType, ContentDisposition disposition, String etag, long lastModified) {
+        response.setHeader(HttpHeaders.ETAG, etag);
+        response.setDateHeader(HttpHeaders.LAST_MODIFIED, lastModified);
+        response.setHeader(HttpHeaders.CACHE_CONTROL, CACHE_CONTROL);
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+
+        if (notModified(request, etag, lastModified)) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return null;
+        }
+
+        response.setContentType(contentType);
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, disposition.toString());
+
+        long start = 0;
+        long end = length - 1;
+        String range = request.getHeader(HttpHeaders.RANGE);
+        if (range != null && ifRangeMatches(request, etag, lastModified)) {
+            long[] parsed = parseRange(range, length);
+            if (parsed == null) {
+                // 多区间或格式不支持：忽略 Range，返回完整内容
+            } else if (parsed.length == 0) {
+                response.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+                return null;
+            } else {
+                start = parsed[0];
+                end = parsed[1];
+                response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + length);
+            }
+        }
+        long count = end - start + 1;
+        response.setContentLengthLong(count);
+        if ("HEAD".equals(request.getMethod()) || count <= 0) {
+            return null;
+        }
+        return new long[] {start, count};
+    }
+
+    /**
+     * 写出以 GZIP 存储的内容。客户端接受 gzip 时原样透传并声明 Content-Encoding，否则边解压边写出；
+     * 两种表示使用不同的 ETag，且不支持 Range（区间对压缩表示没有意义）。
+     *
+     * @param storedLength  压缩后（存储）的长度
+     * @param decodedLength 原始内容长度
+     * @param etag          原始内容的强 ETag（含引号），gzip 表示在其后追加 -gzip
+     */
+    static void serveGzip(HttpServletRequest request, HttpServletResponse response, RangeSource source,
+            long storedLength, long decodedLength, String contentType, ContentDisposition disposition, String etag,
+            long lastModified) throws IOException {
+        boolean passThrough = acceptsGzip(request);
+        String representationEtag = passThrough ? etag.substring(0, etag.length() - 1) + "-gzip\"" : etag;
+        response.setHeader(HttpHeaders.ETAG, representationEtag);
+        response.setDateHeader(HttpHeaders.LAST_MODIFIED, lastModified);
+        response.setHeader(HttpHeaders.CACHE_CONTROL, CACHE_CONTROL);
+        response.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "none");
+
+        if (notModified(request, representationEtag, lastModified)) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+
+        response.setContentType(contentType);
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, disposition.toString());
+        if (passThrough) {
+            response.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+            response.setContentLengthLong(storedLength);
+            if (!"HEAD".equals(request.getMethod()) && storedLength > 0) {
+                try (InputStream in = source.open(0, storedLength)) {
+                    copy(in, response, storedLength);
+                }
+            }
+            return;
+        }
+        response.setContentLengthLong(decodedLength);
+        if ("HEAD".equals(request.getMethod())) {
+            return;
+        }
+        try (InputStream in = new GZIPInputStream(source.open(0, storedLength), 64 * 1024)) {
+            copy(in, response, decodedLength);
+        }
+    }
+
+    /**
+     * 本地文件的区间数据源。
+     */
+    static RangeSource fileSource(Path file) {
+        return (start, count) -> {
+            FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+            try {
+                channel.position(start);
+                return Channels.newInputStream(channel);
+            } catch (IOException ex) {
+                channel.close();
+                throw ex;
+            }
+        };
+    }
+
+    private static void transfer(Path file, long start, long count, HttpServletResponse response) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            OutputStream out = response.getOutputStream();
+            WritableByteChannel target = Channels.newChannel(out);
+            long position = start;
+            long remaining = count;
+            while (remaining > 0) {
+                long written = channel.transferTo(position, remaining, target);
+                if (written <= 0) break;
+                position += written;
+                remaining -= written;
+            }
+            out.flush();
+        }
+    }
+
+    /**
+     * 从流中最多复制 count 字节到响应。
+     */
+    private static void copy(InputStream in, HttpServletResponse response, long count) throws IOException {
+        OutputStream out = response.getOutputStream();
+        byte[] buffer = new byte[64 * 1024];
+        long remaining = count;
+        while (remaining > 0) {
+            int read = in.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+            if (read < 0) break;
+            out.write(buffer, 0, read);
+            remaining -= read;
+        }
+        out.flush();
+    }
+
+    /**
+     * Accept-Encoding 中包含 gzip（或 *）且 q 值不为 0。
+     */
+    private static boolean acceptsGzip(HttpServletRequest request) {
+        String header = request.getHeader(HttpHeaders.ACCEPT_ENCODING);
+        if (header == null) {
+            return false;
+        }
+        for (String part : header.split(",")) {
+            String[] tokens = part.trim().split(";");
+            String coding = tokens[0].trim().toLowerCase(Locale.ROOT);
+            if (!coding.equals("gzip") && !coding.equals("x-gzip") && !coding.equals("*")) {
+                continue;
+            }
+            boolean refused = false;
+            for (int i = 1; i < tokens.length; i++) {
+                String param = tokens[i].trim();
+                if (param.startsWith("q=")) {
+                    try {
+                        refused = Double.parseDouble(param.substring(2).trim()) <= 0;
+                    } catch (NumberFormatException ex) {
+                        refused = true;
+                    }
+                }
+            }
+            if (!refused) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean notModified(HttpServletRequest request, String etag, long lastModified) {
+        String ifNoneMatch = request.getHeader(HttpHeaders.IF_NONE_MATCH);
+        if (ifNoneMatch != null) {
+            return matchesEtag(ifNoneMatch, etag);
+        }
+        long since = dateHeader(request, HttpHeaders.IF_MODIFIED_SINCE);
+        return since >= 0 && lastModified / 1000 <= since / 1000;
+    }
+
+    /**
+     * If-Range 缺省、等于当前 ETag 或不早于最后修改时间时 Range 才生效。
+     */
+    private static boolean ifRangeMatches(HttpServletRequest request, String etag, long lastModified) {
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (ifRange == null) {
+            return true;
+        }
+        if (ifRange.trim().startsWith("\"") || ifRange.trim().startsWith("W/")) {
+            return ifRange.trim().equals(etag);
+        }
+        long date = dateHeader(request, HttpHeaders.IF_RANGE);
+        return date >= 0 && lastModified / 1000 <= date / 1000;
+    }
+
+    private static boolean matchesEtag(String header, String etag) {
+        for (String candidate : header.split(",")) {
+            String c = candidate.trim();
+            if (c.equals("*") || c.equals(etag) || c.equals("W/" + etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static long dateHeader(HttpServletRequest request, String name) {
+        try {
+            return request.getDateHeader(name);
+        } catch (IllegalArgumentException ex) {
+            return -1;
+        }
+    }
+
+    /**
+     * 解析单区间 Range。
+     *
+     * @return {start, end}；空数组表示区间不可满足；null 表示不支持（多区间、非 bytes 单位或格式错误）
+     */
+    static long[] parseRange(String header, long length) {
+        String value = header.trim();
+        if (!value.startsWith("bytes=") || value.indexOf(',') >= 0) {
+            return null;
+        }
+        String spec = value.substring("bytes=".length()).trim();
+        int dash = spec.indexOf('-');
+        if (dash < 0) {
+            return null;
+        }
+        try {
+            String first = spec.substring(0, dash).trim();
+            String last = spec.substring(dash + 1).trim();
+            long start;
+            long end;
+            if (first.isEmpty()) {
+                // 后缀区间：最后 N 字节
+                long suffix = Long.parseLong(last);
+                if (suffix <= 0) return new long[0];
+                start = Math.max(0, length - suffix);
+                end = length - 1;
+            } else {
+                start = Long.parseLong(first);
+                end = last.isEmpty() ? length - 1 : Math.min(Long.parseLong(last), length - 1);
+                if (end < start) return null;
+            }
+            if (start >= length) {
+                return new long[0];
+            }
+            return new long[] {start, end};
+        } catch (NumberFormatException ex) {
+            return null;
+        }
+    }
+}
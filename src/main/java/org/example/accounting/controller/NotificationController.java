@@ -1,7 +1,11 @@
 package org.example.accounting.controller;
 
+import org.example.accounting.exception.BusinessException;
 import org.example.accounting.service.NotificationService;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
@@ -11,6 +15,9 @@ import org.slf4j.LoggerFactory;
 /**
  * SSE 订阅端点。
  * 前端可调用：GET /api/notifications/subscribe?user=<username> （user 可选）
+ * 个人通知与补发按当前登录用户投递：传入的 user 必须与登录用户一致，未登录的连接只收广播。
+ * topics 可选，逗号分隔的事件类型，只推送这些类型的事件（如 topics=transaction_resubmitted,NEW_DRAFT_TRANSACTION）。
+ * 断线重连时浏览器自动携带 Last-Event-ID 请求头（也可用 lastEventId 参数），服务端据此补发错过的事件。
  */
 @RestController
 public class NotificationController {
@@ -23,31 +30,36 @@ public class NotificationController {
     }
 
     @GetMapping("/api/notifications/subscribe")
-    public SseEmitter subscribe(@RequestParam(name = "user", required = false) String user) {
+    public SseEmitter subscribe(@RequestParam(name = "user", required = false) String user,
+                           @RequestHeader(name = "Last-Event-ID", required = false) String lastEventIdHeader,
+                           @RequestParam(name = "lastEventId", required = false) String lastEventId,
+                           @RequestParam(name = "topics", required = false) java.util.Set<String> topics) {
         logger.debug("Subscribe called for user={}", user);
-        SseEmitter emitter = notificationService.registerEmitter(user);
-        // send an initial connected event to verify the connection
-        try {
-            SseEmitter.SseEventBuilder ev = SseEmitter.event().name("connected").data(java.util.Collections.singletonMap("ts", java.time.Instant.now().toString()));
-            emitter.send(ev);
-        } catch (Exception ex) {
-            logger.warn("Failed to send initial SSE event to user={}", user, ex);
-        }
-        return emitter;
+        // the service queues the initial connected event ahead of any replayed events
+        return notificationService.registerEmitter(resolveUser(user), lastEventIdHeader != null ? lastEventIdHeader : lastEventId, topics);
     }
 
     // alias to support previous client paths
     @GetMapping("/api/notifications/stream")
-    public SseEmitter stream(@RequestParam(name = "user", required = false) String user) {
+    public SseEmitter stream(@RequestParam(name = "user", required = false) String user,
+                           @RequestHeader(name = "Last-Event-ID", required = false) String lastEventIdHeader,
+                           @RequestParam(name = "lastEventId", required = false) String lastEventId,
+                           @RequestParam(name = "topics", required = false) java.util.Set<String> topics) {
         logger.debug("Stream (alias) called for user={}", user);
-        SseEmitter emitter = notificationService.registerEmitter(user);
-        try {
-            SseEmitter.SseEventBuilder ev = SseEmitter.event().name("connected").data(java.util.Collections.singletonMap("ts", java.time.Instant.now().toString()));
-            emitter.send(ev);
-        } catch (Exception ex) {
-            logger.warn("Failed to send initial SSE event (alias) to user={}", user, ex);
+        return notificationService.registerEmitter(resolveUser(user), lastEventIdHeader != null ? lastEventIdHeader : lastEventId, topics);
+    }
+
+    /**
+     * 订阅者取自登录用户，不信任请求参数，避免订阅或补发他人的通知。
+     */
+    private static String resolveUser(String requested) {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        String current = authentication == null || !authentication.isAuthenticated()
+                || "anonymousUser".equals(authentication.getName()) ? null : authentication.getName();
+        if (requested != null && !requested.isBlank() && !requested.equals(current)) {
+            throw new BusinessException("只能订阅当前登录用户的通知");
         }
-        return emitter;
+        return current;
     }
 
     @GetMapping("/api/notifications/ping")
@@ -2,11 +2,18 @@ package org.example.accounting.controller;
 
 import org.example.accounting.domain.PurchaseOrder;
 import org.example.accounting.domain.PurchaseOrderAudit;
+import org.example.accounting.domain.PurchaseStatus;
 import org.example.accounting.domain.Supplier;
+import org.example.accounting.dto.PurchaseDtos.BatchReviewRequest;
+import org.example.accounting.dto.PurchaseDtos.BatchReviewResult;
 import org.example.accounting.dto.PurchaseDtos.CreatePurchaseRequest;
 import org.example.accounting.dto.PurchaseDtos.CreateSupplierRequest;
+import org.example.accounting.dto.PurchaseDtos.OrderQuery;
+import org.example.accounting.dto.TransactionDtos.CursorSlice;
 import org.example.accounting.service.PurchaseService;
 import org.example.accounting.exception.BusinessException;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
@@ -29,6 +36,15 @@ public class PurchaseController {
         return purchaseService.searchSuppliers(q);
     }
 
+    /**
+     * 供应商自动补全（分页，按匹配度排序），q 为空时按名称列出。
+     */
+    @GetMapping("/suppliers/autocomplete")
+    public Page<Supplier> autocompleteSuppliers(@RequestParam(value = "q", required = false) String q,
+                                                Pageable pageable) {
+        return purchaseService.autocompleteSuppliers(q, pageable);
+    }
+
     @PostMapping("/suppliers")
     public Supplier createSupplier(@RequestBody CreateSupplierRequest req) {
         // both admin and employees can create suppliers per spec
@@ -56,29 +72,102 @@ public class PurchaseController {
         return purchaseService.listMyOrders(username);
     }
 
+    /**
+     * 我的采购单（分页 + 过滤）。
+     */
+    @GetMapping(value = "/orders/my", params = "page")
+    public Page<PurchaseOrder> myOrdersPage(OrderQuery query, Pageable pageable) {
+        return purchaseService.pageOrders(currentUsername(), query, pageable);
+    }
+
+    /**
+     * 我的采购单（键集分页），首页 after 传空值，之后传返回的 nextCursor。
+     */
+    @GetMapping(value = "/orders/my", params = "after")
+    public CursorSlice<PurchaseOrder> myOrdersSeek(OrderQuery query, @RequestParam(name = "after") String after,
+                                                   @RequestParam(name = "size", defaultValue = "50") int size) {
+        return purchaseService.sliceOrders(currentUsername(), query, after, size);
+    }
+
+    /**
+     * 旧接口：一次返回全部待审核采购单，仅为兼容旧客户端保留；页面使用 ?after= 键集分页。
+     */
     @GetMapping("/orders/pending")
     @PreAuthorize("hasRole('ADMIN')")
     public List<PurchaseOrder> pendingOrders() {
         return purchaseService.listPending();
     }
 
+    @GetMapping(value = "/orders/pending", params = "page")
+    @PreAuthorize("hasRole('ADMIN')")
+    public Page<PurchaseOrder> pendingOrdersPage(OrderQuery query, Pageable pageable) {
+        query.setStatus(PurchaseStatus.PENDING);
+        return purchaseService.pageOrders(null, query, pageable);
+    }
+
+    @GetMapping(value = "/orders/pending", params = "after")
+    @PreAuthorize("hasRole('ADMIN')")
+    public CursorSlice<PurchaseOrder> pendingOrdersSeek(OrderQuery query, @RequestParam(name = "after") String after,
+                                                        @RequestParam(name = "size", defaultValue = "50") int size) {
+        query.setStatus(PurchaseStatus.PENDING);
+        return purchaseService.sliceOrders(null, query, after, size);
+    }
+
     @PutMapping("/orders/{id}/review")
     @PreAuthorize("hasRole('ADMIN')")
     public org.example.accounting.dto.PurchaseDtos.ReviewResult reviewOrder(@PathVariable Long id, @RequestBody ReviewRequest req) {
         return purchaseService.reviewOrder(id, req.isApproved(), req.getReason());
     }
 
+    /**
+     * 批量审核：同一结论（通过/驳回）作用于多个采购单，已被审核的采购单跳过。
+     */
+    @PutMapping("/orders/review")
+    @PreAuthorize("hasRole('ADMIN')")
+    public BatchReviewResult reviewOrders(@RequestBody BatchReviewRequest req) {
+        return purchaseService.reviewOrders(req.getOrderIds(), req.isApproved(), req.getReason());
+    }
+
     @GetMapping("/orders/{id}/audits")
     public List<PurchaseOrderAudit> audits(@PathVariable Long id) {
         return purchaseService.listAudits(id);
     }
 
+    /**
+     * 旧接口：一次返回全部采购单，仅为兼容旧客户端保留；页面使用 ?after= 键集分页。
+     */
     @GetMapping("/orders/all")
     @PreAuthorize("hasRole('ADMIN')")
     public List<PurchaseOrder> allOrders() {
         return purchaseService.listAllOrders();
     }
 
+    /**
+     * 全部采购单（分页），可按状态、供应商、创建日期过滤。
+     */
+    @GetMapping(value = "/orders/all", params = "page")
+    @PreAuthorize("hasRole('ADMIN')")
+    public Page<PurchaseOrder> allOrdersPage(OrderQuery query, Pageable pageable) {
+        return purchaseService.pageOrders(null, query, pageable);
+    }
+
+    /**
+     * 全部采购单（键集分页），不计算总数，翻页深度不影响查询耗时。
+     */
+    @GetMapping(value = "/orders/all", params = "after")
+    @PreAuthorize("hasRole('ADMIN')")
+    public CursorSlice<PurchaseOrder> allOrdersSeek(OrderQuery query, @RequestParam(name = "after") String after,
+                                                    @RequestParam(name = "size", defaultValue = "50") int size) {
+        return purchaseService.sliceOrders(null, query, after, size);
+    }
+
+    private static String currentUsername() {
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        String username = auth != null ? auth.getName() : null;
+        if (username == null) throw new BusinessException("未登录");
+        return username;
+    }
+
     // small DTO for review payload
     public static class ReviewRequest {
         private boolean approved;
@@ -1,19 +1,24 @@
 package org.example.accounting.controller;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.accounting.domain.Transaction;
 import org.example.accounting.domain.TransactionAttachment;
+import org.example.accounting.dto.TransactionDtos.ChangeFeed;
 import org.example.accounting.dto.TransactionDtos.CreateTransactionRequest;
+import org.example.accounting.dto.TransactionDtos.CursorSlice;
+import org.example.accounting.dto.TransactionDtos.TransactionQueryRequest;
 import org.example.accounting.dto.TransactionDtos.TransactionResponse;
 import org.example.accounting.repository.TransactionAttachmentRepository;
+import org.example.accounting.service.AttachmentExportService;
+import org.example.accounting.service.AttachmentThumbnailService;
 import org.example.accounting.service.FileStorageService;
 import org.example.accounting.service.TransactionService;
-import org.springframework.core.io.Resource;
-import org.springframework.core.io.UrlResource;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ContentDisposition;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
-import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
@@ -21,9 +26,18 @@ import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.BufferedOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * 交易管理 REST 控制器。
@@ -36,15 +50,21 @@ public class TransactionController {
     private final FileStorageService fileStorageService;
     private final TransactionAttachmentRepository attachmentRepository;
     private final ObjectMapper objectMapper;
+    private final AttachmentThumbnailService thumbnailService;
+    private final AttachmentExportService exportService;
 
     public TransactionController(TransactionService transactionService,
                                 FileStorageService fileStorageService,
                                 TransactionAttachmentRepository attachmentRepository,
-                                ObjectMapper objectMapper) {
+                                ObjectMapper objectMapper,
+                                AttachmentThumbnailService thumbnailService,
+                                AttachmentExportService exportService) {
         this.transactionService = transactionService;
         this.fileStorageService = fileStorageService;
         this.attachmentRepository = attachmentRepository;
         this.objectMapper = objectMapper;
+        this.thumbnailService = thumbnailService;
+        this.exportService = exportService;
     }
 
     /**
@@ -59,22 +79,7 @@ public class TransactionController {
             TransactionResponse response = transactionService.createTransaction(request);
             
             // 如果有文件，保存附件
-            if (files != null && files.length > 0) {
-                for (MultipartFile file : files) {
-                    if (!file.isEmpty()) {
-                        String storedFilename = fileStorageService.storeFile(file);
-                        TransactionAttachment attachment = TransactionAttachment.builder()
-                                .transaction(transactionService.getTransactionById(response.getId()))
-                                .originalFilename(file.getOriginalFilename())
-                                .storedFilename(storedFilename)
-                                .contentType(file.getContentType())
-                                .fileSize(file.getSize())
-                                .uploadedAt(LocalDateTime.now())
-                                .build();
-                        attachmentRepository.save(attachment);
-                    }
-                }
-            }
+            saveAttachments(response.getId(), files);
             
             return response;
         } catch (IOException e) {
@@ -82,6 +87,57 @@ public class TransactionController {
         }
     }
 
+    /**
+     * 保存上传的附件：各文件由存储服务并行流式写入（边写边算哈希，完成后原子移动到位），
+     * 交易只加载一次，附件记录一次批量插入；图片附件随后在后台生成缩略图。
+     */
+    private void saveAttachments(Long transactionId, MultipartFile[] files) {
+        if (files == null || files.length == 0) {
+            return;
+        }
+        List<MultipartFile> nonEmpty = new ArrayList<>(files.length);
+        for (MultipartFile file : files) {
+            if (!file.isEmpty()) {
+                nonEmpty.add(file);
+            }
+        }
+        if (nonEmpty.isEmpty()) {
+            return;
+        }
+        List<FileStorageService.StoredUpload> stored = fileStorageService.storeFiles(nonEmpty);
+        List<TransactionAttachment> attachments = new ArrayList<>(stored.size());
+        try {
+            Transaction transaction = transactionService.getTransactionById(transactionId);
+            LocalDateTime now = LocalDateTime.now();
+            for (int i = 0; i < stored.size(); i++) {
+                MultipartFile file = nonEmpty.get(i);
+                attachments.add(TransactionAttachment.builder()
+                        .transaction(transaction)
+                        .originalFilename(file.getOriginalFilename())
+                        .storedFilename(stored.get(i).storedFilename())
+                        .contentType(file.getContentType())
+                        .fileSize(stored.get(i).size())
+                        .contentEncoding(stored.get(i).contentEncoding())
+                        .uploadedAt(now)
+                        .build());
+            }
+            attachmentRepository.batchInsert(attachments);
+        } catch (RuntimeException ex) {
+            // 附件记录未写入：释放 storeFiles 登记的引用，否则引用计数永远不会归零
+            for (FileStorageService.StoredUpload upload : stored) {
+                try {
+                    fileStorageService.deleteFile(upload.storedFilename());
+                } catch (RuntimeException ignored) {
+                }
+            }
+            throw ex;
+        }
+        for (TransactionAttachment attachment : attachments) {
+            thumbnailService.schedule(attachment.getStoredFilename(), attachment.getContentType(),
+                    attachment.getContentEncoding());
+        }
+    }
+
     /**
      * 创建双式记账交易（JSON格式，兼容旧接口）。
      */
@@ -92,11 +148,17 @@ public class TransactionController {
 
     /**
      * 下载交易附件。
+     * 支持 Range/If-Range 断点续传与分段下载；存储名为 UUID、内容不变，返回强 ETag 与长期缓存头，
+     * 再次查看时浏览器直接使用缓存或得到 304。
+     * 以 GZIP 存储的附件：客户端接受 gzip 时原样透传（Content-Encoding: gzip），否则解压后返回，不支持 Range。
+     * 本地文件走 sendfile，已在对象存储（冷层）中的文件按区间从对象存储读取。
      */
     @GetMapping("/{transactionId}/attachments/{attachmentId}/download")
-    public ResponseEntity<Resource> downloadAttachment(
+    public void downloadAttachment(
             @PathVariable Long transactionId,
-            @PathVariable Long attachmentId) {
+            @PathVariable Long attachmentId,
+            HttpServletRequest request,
+            HttpServletResponse response) throws IOException {
         TransactionAttachment attachment = attachmentRepository.findById(attachmentId)
                 .orElseThrow(() -> new RuntimeException("附件不存在"));
         
@@ -104,29 +166,95 @@ public class TransactionController {
             throw new RuntimeException("附件不属于该交易");
         }
         
-        try {
-            Path filePath = fileStorageService.getFilePath(attachment.getStoredFilename());
-            Resource resource = new UrlResource(filePath.toUri());
-            
-            if (!resource.exists() || !resource.isReadable()) {
-                throw new RuntimeException("文件不存在或无法读取");
-            }
-            
-            return ResponseEntity.ok()
-                    .contentType(MediaType.parseMediaType(attachment.getContentType() != null ? attachment.getContentType() : "application/octet-stream"))
-                    .header(HttpHeaders.CONTENT_DISPOSITION, 
-                            "attachment; filename=\"" + attachment.getOriginalFilename() + "\"")
-                    .body(resource);
-        } catch (Exception e) {
-            throw new RuntimeException("下载文件失败", e);
+        // 所在层只看本地文件系统与对象存储本身，不额外查询数据库
+        String storedFilename = attachment.getStoredFilename();
+        Path localFile = fileStorageService.findLocalFile(storedFilename);
+        long storedLength = localFile != null ? Files.size(localFile) : fileStorageService.storedSize(storedFilename);
+        if (storedLength < 0) {
+            throw new RuntimeException("文件不存在或无法读取");
+        }
+        long lastModified = attachment.getUploadedAt() != null
+                ? attachment.getUploadedAt().atZone(java.time.ZoneId.systemDefault()).toInstant().toEpochMilli()
+                : localFile != null ? Files.getLastModifiedTime(localFile).toMillis() : 0L;
+        String contentType = attachment.getContentType() != null
+                ? attachment.getContentType() : "application/octet-stream";
+        ContentDisposition disposition = ContentDisposition.attachment().filename(attachment.getOriginalFilename() != null
+                ? attachment.getOriginalFilename() : storedFilename, StandardCharsets.UTF_8).build();
+        String etag = "\"" + storedFilename + "\"";
+        FileRangeSupport.RangeSource source = localFile != null
+                ? FileRangeSupport.fileSource(localFile)
+                : (start, count) -> fileStorageService.openStored(storedFilename, start, count);
+        if ("gzip".equalsIgnoreCase(attachment.getContentEncoding())) {
+            FileRangeSupport.serveGzip(request, response, source, storedLength, attachment.getFileSize(),
+                    contentType, disposition, etag, lastModified);
+        } else if (localFile != null) {
+            FileRangeSupport.serve(request, response, localFile, storedLength,
+                    contentType, disposition, etag, lastModified);
+        } else {
+            FileRangeSupport.serve(request, response, source, storedLength,
+                    contentType, disposition, etag, lastModified);
         }
     }
 
     /**
-     * 分页查询交易记录。
+     * 批量导出附件为 ZIP：指定 transactionIds，或 from/to 日期范围（含）内全部交易的附件。
+     * 归档边生成边写入响应（分块传输），不落临时文件，适用于整季度数十 GB 的导出。
+     */
+    @GetMapping("/attachments/export")
+    @PreAuthorize("hasRole('ADMIN')")
+    public void exportAttachments(
+            @RequestParam(name = "from", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(name = "to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(name = "transactionIds", required = false) List<Long> transactionIds,
+            HttpServletResponse response) throws IOException {
+        exportService.validate(from, to, transactionIds);
+        String filename = transactionIds != null && !transactionIds.isEmpty()
+                ? "attachments.zip" : "attachments-" + from + "-" + to + ".zip";
+        response.setContentType("application/zip");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION,
+                ContentDisposition.attachment().filename(filename).build().toString());
+        response.setHeader(HttpHeaders.CACHE_CONTROL, "no-store");
+        OutputStream out = new BufferedOutputStream(response.getOutputStream(), 64 * 1024);
+        exportService.export(from, to, transactionIds, out);
+        out.flush();
+    }
+
+    /**
+     * 附件缩略图（JPEG，长边不超过 320 像素），用于预览。
+     * 缩略图由后台生成；尚未生成或类型不支持时返回 404，前端回退为文件名链接。
+     */
+    @GetMapping("/{transactionId}/attachments/{attachmentId}/thumbnail")
+    public void attachmentThumbnail(
+            @PathVariable Long transactionId,
+            @PathVariable Long attachmentId,
+            HttpServletRequest request,
+            HttpServletResponse response) throws IOException {
+        TransactionAttachment attachment = attachmentRepository.findById(attachmentId)
+                .orElseThrow(() -> new RuntimeException("附件不存在"));
+        if (!attachment.getTransaction().getId().equals(transactionId)) {
+            throw new RuntimeException("附件不属于该交易");
+        }
+        Path thumbnail = thumbnailService.findThumbnail(attachment.getStoredFilename());
+        if (thumbnail == null) {
+            // 可能是旧附件或生成任务被丢弃，重新提交
+            thumbnailService.schedule(attachment.getStoredFilename(), attachment.getContentType(),
+                    attachment.getContentEncoding());
+            response.setStatus(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        FileRangeSupport.serve(request, response, thumbnail, Files.size(thumbnail), MediaType.IMAGE_JPEG_VALUE,
+                ContentDisposition.inline().filename("thumbnail.jpg").build(),
+                "\"thumb-" + attachment.getStoredFilename() + "\"", Files.getLastModifiedTime(thumbnail).toMillis());
+    }
+
+    /**
+     * 分页查询交易记录。view=summary 时只返回交易摘要（不含分录明细）。
      */
     @GetMapping
-    public Page<TransactionResponse> page(Pageable pageable) {
+    public Page<?> page(@RequestParam(name = "view", required = false) String view, Pageable pageable) {
+        if (isSummaryView(view)) {
+            return transactionService.pageTransactionSummaries(pageable);
+        }
         return transactionService.pageTransactions(pageable);
     }
 
@@ -134,7 +262,10 @@ public class TransactionController {
      * 获取待核对交易（未清算）。
      */
     @GetMapping("/reconcile")
-    public Page<TransactionResponse> reconcile(Pageable pageable) {
+    public Page<?> reconcile(@RequestParam(name = "view", required = false) String view, Pageable pageable) {
+        if (isSummaryView(view)) {
+            return transactionService.pageUnclearedTransactionSummaries(pageable);
+        }
         return transactionService.pageUnclearedTransactions(pageable);
     }
 
@@ -143,7 +274,11 @@ public class TransactionController {
      */
     @GetMapping("/history")
     @PreAuthorize("hasRole('ADMIN')")
-    public Page<TransactionResponse> history(@RequestParam(name = "search", required = false) String search, Pageable pageable) {
+    public Page<?> history(@RequestParam(name = "search", required = false) String search,
+                           @RequestParam(name = "view", required = false) String view, Pageable pageable) {
+        if (isSummaryView(view)) {
+            return transactionService.searchClearedTransactionSummaries(search, pageable);
+        }
         return transactionService.searchClearedTransactions(search, pageable);
     }
 
@@ -151,12 +286,104 @@ public class TransactionController {
      * 当前登录用户查看自己的已核对交易（分页 + 可搜索）。
      */
     @GetMapping("/history/mine")
-    public Page<TransactionResponse> historyMine(@RequestParam(name = "search", required = false) String search, Pageable pageable) {
+    public Page<?> historyMine(@RequestParam(name = "search", required = false) String search,
+                               @RequestParam(name = "view", required = false) String view, Pageable pageable) {
         Authentication auth = SecurityContextHolder.getContext().getAuthentication();
         String username = auth != null ? auth.getName() : null;
+        if (isSummaryView(view)) {
+            return transactionService.searchClearedTransactionSummariesForUser(username, search, pageable);
+        }
         return transactionService.searchClearedTransactionsForUser(username, search, pageable);
     }
 
+    /**
+     * 键集分页查询交易记录：携带 after 参数（首页传空值）时返回 {@link CursorSlice}，
+     * 客户端用返回的 nextCursor 作为下一次的 after；count=exact/estimate 时附带总数。
+     */
+    @GetMapping(params = "after")
+    public CursorSlice<?> seek(@RequestParam(name = "after") String after,
+                               @RequestParam(name = "size", defaultValue = "50") int size,
+                               @RequestParam(name = "count", required = false) String count,
+                               @RequestParam(name = "view", required = false) String view) {
+        if (isSummaryView(view)) {
+            return transactionService.sliceTransactionSummaries(after, size, count);
+        }
+        return transactionService.sliceTransactions(after, size, count);
+    }
+
+    /**
+     * 键集分页获取待核对交易。
+     */
+    @GetMapping(path = "/reconcile", params = "after")
+    public CursorSlice<?> reconcileSeek(@RequestParam(name = "after") String after,
+                                        @RequestParam(name = "size", defaultValue = "50") int size,
+                                        @RequestParam(name = "count", required = false) String count,
+                                        @RequestParam(name = "view", required = false) String view) {
+        if (isSummaryView(view)) {
+            return transactionService.sliceUnclearedTransactionSummaries(after, size, count);
+        }
+        return transactionService.sliceUnclearedTransactions(after, size, count);
+    }
+
+    /**
+     * 管理员键集分页查看已核对交易。
+     */
+    @GetMapping(path = "/history", params = "after")
+    @PreAuthorize("hasRole('ADMIN')")
+    public CursorSlice<?> historySeek(@RequestParam(name = "search", required = false) String search,
+                                      @RequestParam(name = "after") String after,
+                                      @RequestParam(name = "size", defaultValue = "50") int size,
+                                      @RequestParam(name = "count", required = false) String count,
+                                      @RequestParam(name = "view", required = false) String view) {
+        if (isSummaryView(view)) {
+            return transactionService.sliceClearedTransactionSummaries(search, after, size, count);
+        }
+        return transactionService.sliceClearedTransactions(search, after, size, count);
+    }
+
+    /**
+     * 当前登录用户键集分页查看自己的已核对交易。
+     */
+    @GetMapping(path = "/history/mine", params = "after")
+    public CursorSlice<?> historyMineSeek(@RequestParam(name = "search", required = false) String search,
+                                          @RequestParam(name = "after") String after,
+                                          @RequestParam(name = "size", defaultValue = "50") int size,
+                                          @RequestParam(name = "count", required = false) String count,
+                                          @RequestParam(name = "view", required = false) String view) {
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        String username = auth != null ? auth.getName() : null;
+        if (isSummaryView(view)) {
+            return transactionService.sliceClearedTransactionSummariesForUser(username, search, after, size, count);
+        }
+        return transactionService.sliceClearedTransactionsForUser(username, search, after, size, count);
+    }
+
+    /**
+     * 多条件组合查询交易：账户（含下级）、金额范围、借贷方向、日期范围、操作员、核对/驳回状态、商品，
+     * 结果按交易日期倒序键集分页，view=summary 时只返回交易摘要。
+     */
+    @GetMapping("/query")
+    public CursorSlice<?> query(TransactionQueryRequest request) {
+        if (isSummaryView(request.getView())) {
+            return transactionService.queryTransactionSummaries(request);
+        }
+        return transactionService.queryTransactions(request);
+    }
+
+    /**
+     * 交易变更流：返回变更序号大于 since 的交易（创建/修改/审核通过/驳回）及新的高水位版本号，
+     * 用于替代定时重新拉取整页列表；不传 since 时只返回当前版本号。
+     */
+    @GetMapping("/changes")
+    public ChangeFeed<?> changes(@RequestParam(name = "since", required = false) Long since,
+                                 @RequestParam(name = "limit", defaultValue = "50") int limit,
+                                 @RequestParam(name = "view", required = false) String view) {
+        if (isSummaryView(view)) {
+            return transactionService.summaryChangesSince(since, limit);
+        }
+        return transactionService.changesSince(since, limit);
+    }
+
     /**
      * 获取交易详情（包括附件信息）。
      */
@@ -184,22 +411,7 @@ public class TransactionController {
         try {
             CreateTransactionRequest request = objectMapper.readValue(transactionJson, CreateTransactionRequest.class);
             TransactionResponse response = transactionService.updateTransaction(id, request);
-            if (files != null && files.length > 0) {
-                for (MultipartFile file : files) {
-                    if (!file.isEmpty()) {
-                        String storedFilename = fileStorageService.storeFile(file);
-                        TransactionAttachment attachment = TransactionAttachment.builder()
-                                .transaction(transactionService.getTransactionById(response.getId()))
-                                .originalFilename(file.getOriginalFilename())
-                                .storedFilename(storedFilename)
-                                .contentType(file.getContentType())
-                                .fileSize(file.getSize())
-                                .uploadedAt(LocalDateTime.now())
-                                .build();
-                        attachmentRepository.save(attachment);
-                    }
-                }
-            }
+            saveAttachments(response.getId(), files);
             return response;
         } catch (IOException e) {
             throw new RuntimeException("解析交易数据失败", e);
@@ -233,7 +445,8 @@ public class TransactionController {
         // forward to service; service has overload to accept optional reason
         return transactionService.approveTransaction(id, approved, reason);
     }
-}
-
-
 
+    private static boolean isSummaryView(String view) {
+        return "summary".equalsIgnoreCase(view);
+    }
+}
@@ -0,0 +1,38 @@
+package org.example.accounting.domain;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * 全局变更序列：每个命名序列一行，写事务在行锁内递增取号，
+ * 因而序号的提交顺序与取号顺序一致，可用作增量同步（变更流）的版本号。
+ */
+@Entity
+@Table(name = "change_sequences")
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ChangeSequence {
+
+    /**
+     * 序列名称，例如：transactions
+     */
+    @Id
+    @Column(name = "name", length = 50)
+    private String name;
+
+    /**
+     * 当前已分配的最大序号
+     */
+    @Column(name = "seq_value", nullable = false)
+    private Long value;
+}
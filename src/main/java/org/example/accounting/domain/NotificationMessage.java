@@ -0,0 +1,57 @@
+package org.example.accounting.domain;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * 跨节点通知总线消息（数据库轮询实现使用）。
+ * 发布节点写入一行，其他节点按 ID 递增轮询并推送给各自本地的 SSE 连接；消息短期保留后清理。
+ */
+@Entity
+@Table(name = "notification_messages", indexes = {
+        @Index(name = "idx_notification_messages_created_at", columnList = "created_at")
+})
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class NotificationMessage {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    /**
+     * 发布节点标识，仅用于排查问题；所有节点（包括发布者）都从轮询中按 ID 顺序推送。
+     */
+    @Column(name = "node_id", nullable = false, length = 64)
+    private String nodeId;
+
+    /**
+     * 接收者用户名；为空表示广播。
+     */
+    @Column(name = "recipient", length = 50)
+    private String recipient;
+
+    /**
+     * 事件类型。
+     */
+    @Column(name = "event_type", nullable = false, length = 100)
+    private String eventType;
+
+    /**
+     * 负载 JSON。
+     */
+    @Lob
+    @Column(name = "payload", columnDefinition = "TEXT")
+    private String payload;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+}
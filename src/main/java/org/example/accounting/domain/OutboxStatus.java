@@ -0,0 +1,19 @@
+package org.example.accounting.domain;
+
+/**
+ * 发件箱消息状态
+ */
+public enum OutboxStatus {
+    /**
+     * 待投递（含等待重试）
+     */
+    PENDING,
+    /**
+     * 已投递
+     */
+    DONE,
+    /**
+     * 重试次数用尽或无处理器，需人工处理
+     */
+    FAILED
+}
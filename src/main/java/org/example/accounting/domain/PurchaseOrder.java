@@ -9,7 +9,10 @@ import lombok.*;
  * 采购订单实体
  */
 @Entity
-@Table(name = "purchase_orders")
+@Table(name = "purchase_orders", indexes = {
+        @Index(name = "idx_purchase_orders_status_created", columnList = "status, created_at, id"),
+        @Index(name = "idx_purchase_orders_creator_created", columnList = "created_by, created_at, id")
+})
 @Getter
 @Setter
 @Builder
@@ -52,9 +55,3 @@ public class PurchaseOrder {
     @Column(name = "reviewed_at")
     private LocalDateTime reviewedAt;
 }
-
-
-
-
-
-
@@ -0,0 +1,53 @@
+package org.example.accounting.domain;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import java.time.LocalDateTime;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * 内容寻址存储中的文件：按内容 SHA-256 唯一，记录被附件引用的次数，引用归零时物理删除。
+ */
+@Entity
+@Table(name = "stored_files")
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class StoredFile {
+
+    /**
+     * 内容 SHA-256（小写十六进制）。
+     */
+    @Id
+    @Column(name = "sha256", length = 64)
+    private String sha256;
+
+    /**
+     * 文件大小（字节）。
+     */
+    @Column(name = "file_size", nullable = false)
+    private Long fileSize;
+
+    /**
+     * 磁盘上的编码：null 为原始内容，gzip 为 GZIP 压缩。
+     */
+    @Column(name = "content_encoding", length = 20)
+    private String contentEncoding;
+
+    /**
+     * 引用计数。
+     */
+    @Column(name = "ref_count", nullable = false)
+    private Long refCount;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+}
@@ -15,7 +15,12 @@ import lombok.Setter;
  * 每笔交易需要至少两条分录以满足双式记账。
  */
 @Entity
-@Table(name = "transactions")
+@Table(name = "transactions", indexes = {
+        @Index(name = "idx_transactions_date_id", columnList = "trade_date, id"),
+        @Index(name = "idx_transactions_cleared_date_id", columnList = "cleared, trade_date, id"),
+        @Index(name = "idx_transactions_creator_cleared_date", columnList = "created_by, cleared, trade_date, id"),
+        @Index(name = "idx_transactions_change_seq", columnList = "change_seq")
+})
 @Getter
 @Setter
 @Builder
@@ -85,6 +90,12 @@ public class Transaction {
     @Column(name = "rejected_by", length = 50)
     private String rejectedBy;
 
+    /**
+     * 变更序号：创建、修改、审核通过或驳回时从全局变更序列取号，用于增量变更流
+     */
+    @Column(name = "change_seq")
+    private Long changeSeq;
+
     /**
      * 分录列表
      */
@@ -55,6 +55,12 @@ public class TransactionAttachment {
     @Column(name = "file_size")
     private Long fileSize;
 
+    /**
+     * 存储编码：null 为原始内容，gzip 表示以 GZIP 压缩存储（fileSize 仍为原始大小）。
+     */
+    @Column(name = "content_encoding", length = 20)
+    private String contentEncoding;
+
     /**
      * 上传时间。
      */
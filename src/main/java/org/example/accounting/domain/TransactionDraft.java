@@ -38,9 +38,16 @@ public class TransactionDraft {
 
     @Column(name = "created_at")
     private LocalDateTime createdAt;
-}
-
-
-
-
 
+    /**
+     * 建议借方科目（费用类），管理员创建交易时可直接采用
+     */
+    @Column(name = "suggested_debit_account_id")
+    private Long suggestedDebitAccountId;
+
+    /**
+     * 建议贷方科目（负债类，如应付账款）
+     */
+    @Column(name = "suggested_credit_account_id")
+    private Long suggestedCreditAccountId;
+}
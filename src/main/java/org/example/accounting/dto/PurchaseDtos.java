@@ -1,7 +1,10 @@
 package org.example.accounting.dto;
 
 import java.math.BigDecimal;
+import java.time.LocalDate;
 import lombok.Data;
+import org.example.accounting.domain.PurchaseStatus;
+import org.springframework.format.annotation.DateTimeFormat;
 
 public class PurchaseDtos {
 
@@ -24,8 +27,50 @@ public class PurchaseDtos {
     @Data
     public static class ReviewResult {
         private org.example.accounting.domain.PurchaseOrder order;
+        /**
+         * 草稿由发件箱在提交后异步生成，审核接口返回时为空
+         */
         private Long draftTransactionId;
     }
-}
 
+    /**
+     * 批量审核请求。
+     */
+    @Data
+    public static class BatchReviewRequest {
+        private java.util.List<Long> orderIds;
+        private boolean approved;
+        /**
+         * 驳回原因（approved=false 时使用，所有采购单共用）
+         */
+        private String reason;
+    }
+
+    /**
+     * 批量审核结果。
+     */
+    @Data
+    public static class BatchReviewResult {
+        /**
+         * 本次完成审核的采购单 ID
+         */
+        private java.util.List<Long> reviewedIds;
+        /**
+         * 不存在或已不是待审核状态而跳过的 ID
+         */
+        private java.util.List<Long> skippedIds;
+    }
 
+    /**
+     * 采购单列表过滤条件（均可为空）。from/to 按创建日期过滤，含两端。
+     */
+    @Data
+    public static class OrderQuery {
+        private PurchaseStatus status;
+        private Long supplierId;
+        @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+        private LocalDate from;
+        @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+        private LocalDate to;
+    }
+}
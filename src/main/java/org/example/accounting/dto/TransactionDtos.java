@@ -1,9 +1,12 @@
 package org.example.accounting.dto;
 
 import java.math.BigDecimal;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.List;
 import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
 
 /**
  * 交易及分录相关 DTO 定义。
@@ -84,6 +87,87 @@ public class TransactionDtos {
         private List<SplitCreateRequest> splits;
     }
 
+    /**
+     * 多条件交易查询请求（GET /api/transactions/query 的查询参数），所有条件均可选、可组合。
+     */
+    @Data
+    public static class TransactionQueryRequest {
+
+        /**
+         * 账户 ID（分录涉及该账户）
+         */
+        private Long accountId;
+
+        /**
+         * 是否包含下级账户，默认包含
+         */
+        private boolean includeDescendants = true;
+
+        /**
+         * 分录金额下限（含）
+         */
+        private BigDecimal minAmount;
+
+        /**
+         * 分录金额上限（含）
+         */
+        private BigDecimal maxAmount;
+
+        /**
+         * 分录借贷方向：DEBIT/CREDIT
+         */
+        private String direction;
+
+        /**
+         * 交易日期起（含）
+         */
+        @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+        private LocalDate from;
+
+        /**
+         * 交易日期止（含）
+         */
+        @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+        private LocalDate to;
+
+        /**
+         * 操作员（创建人用户名）
+         */
+        private String operator;
+
+        /**
+         * 是否已核对
+         */
+        private Boolean cleared;
+
+        /**
+         * 是否被驳回
+         */
+        private Boolean rejected;
+
+        /**
+         * 分录商品 ID
+         */
+        private Long commodityId;
+
+        /**
+         * 键集分页游标，为空表示第一页
+         */
+        private String after;
+
+        private int size = 50;
+
+        /**
+         * 总数计算方式：none / exact / estimate
+         */
+        private String count;
+
+        /**
+         * 返回视图：为 summary 时只返回交易摘要
+         */
+        private String view;
+    }
+
     /**
      * 分录返回 DTO。
      */
@@ -135,7 +219,84 @@ public class TransactionDtos {
         private LocalDateTime rejectedAt;
         private String rejectedBy;
     }
-}
 
+    /**
+     * 交易摘要 DTO（列表视图 view=summary）：只含交易头信息，分录数与借方合计由 SQL 聚合得出。
+     * 由 JPQL 构造器表达式直接创建，字段顺序与 TransactionRepository#findSummariesByIdIn 保持一致。
+     */
+    @Data
+    @NoArgsConstructor
+    public static class TransactionSummaryResponse {
 
+        private Long id;
+        private LocalDateTime tradeDate;
+        private String description;
+        private String reference;
+        private String operator;
+        private Boolean cleared;
+        private Boolean rejected;
+        private long splitCount;
+        /**
+         * 借方金额合计（即交易总额）
+         */
+        private BigDecimal totalAmount;
+
+        public TransactionSummaryResponse(Long id, LocalDateTime tradeDate, String description, String reference,
+                String operator, Boolean cleared, Boolean rejected, Number splitCount, Number totalAmount) {
+            this.id = id;
+            this.tradeDate = tradeDate;
+            this.description = description;
+            this.reference = reference;
+            this.operator = operator;
+            this.cleared = cleared;
+            this.rejected = rejected;
+            this.splitCount = splitCount != null ? splitCount.longValue() : 0L;
+            if (totalAmount == null) {
+                this.totalAmount = BigDecimal.ZERO;
+            } else if (totalAmount instanceof BigDecimal decimal) {
+                this.totalAmount = decimal;
+            } else {
+                this.totalAmount = new BigDecimal(totalAmount.toString());
+            }
+        }
+    }
 
+    /**
+     * 交易变更流返回 DTO。
+     */
+    @Data
+    public static class ChangeFeed<T> {
+
+        /**
+         * since 之后发生变更（创建/修改/审核通过/驳回）的交易，按变更顺序排列
+         */
+        private List<T> changes;
+        /**
+         * 高水位版本号，下一次请求作为 since 传回
+         */
+        private long version;
+        /**
+         * 是否还有未返回的变更（超过 limit 时为 true，客户端应立即再拉一次）
+         */
+        private boolean hasMore;
+    }
+
+    /**
+     * 键集分页返回 DTO（不含总页数，避免每次请求都执行 COUNT）。
+     */
+    @Data
+    public static class CursorSlice<T> {
+
+        private List<T> content;
+        private int size;
+        private boolean hasNext;
+        /**
+         * 下一页游标，无下一页时为空
+         */
+        private String nextCursor;
+        /**
+         * 总记录数：count=exact 时为精确值，count=estimate 时为短时缓存的近似值，默认不计算
+         */
+        private Long totalElements;
+    }
+}
@@ -3,7 +3,9 @@ package org.example.accounting.repository;
 import java.util.List;
 import java.util.Optional;
 import org.example.accounting.domain.Account;
+import org.example.accounting.domain.AccountType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 
 /**
  * 账户仓储接口
@@ -19,6 +21,12 @@ public interface AccountRepository extends JpaRepository<Account, Long> {
      */
     List<Account> findByParentId(Long parentId);
 
+    /**
+     * 查询全部账户的 [id, parentId]，用于在内存中展开账户树（避免逐层递归查询）。
+     */
+    @Query("select a.id, p.id from Account a left join a.parent p")
+    List<Object[]> findAllIdAndParentId();
+
     /**
      * 根据编码查找账户。
      *
@@ -26,16 +34,14 @@ public interface AccountRepository extends JpaRepository<Account, Long> {
      * @return 账户
      */
     Optional<Account> findByCode(String code);
-}
-
-
-
-
-
-
-
-
-
-
 
+    /**
+     * 指定类型中 ID 最小的启用账户（用于草稿建议科目）。
+     */
+    Optional<Account> findFirstByTypeAndActiveTrueOrderByIdAsc(AccountType type);
 
+    /**
+     * ID 最小的两个启用账户（找不到对应类型科目时的建议科目兜底）。
+     */
+    List<Account> findTop2ByActiveTrueOrderByIdAsc();
+}
@@ -0,0 +1,22 @@
+package org.example.accounting.repository;
+
+import jakarta.persistence.LockModeType;
+import java.util.Optional;
+import org.example.accounting.domain.ChangeSequence;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+/**
+ * 变更序列仓储。
+ */
+public interface ChangeSequenceRepository extends JpaRepository<ChangeSequence, String> {
+
+    /**
+     * 加行锁读取序列（锁持有到当前事务提交）。
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select c from ChangeSequence c where c.name = :name")
+    Optional<ChangeSequence> findForUpdate(@Param("name") String name);
+}
@@ -0,0 +1,28 @@
+package org.example.accounting.repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import org.example.accounting.domain.NotificationMessage;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * 跨节点通知总线消息仓储。
+ */
+public interface NotificationMessageRepository extends JpaRepository<NotificationMessage, Long> {
+
+    @Query("select m from NotificationMessage m where m.id > :afterId order by m.id asc")
+    List<NotificationMessage> findAfter(@Param("afterId") Long afterId, Pageable pageable);
+
+    @Query("select coalesce(max(m.id), 0) from NotificationMessage m")
+    long findMaxId();
+
+    @Transactional
+    @Modifying
+    @Query("delete from NotificationMessage m where m.createdAt < :before")
+    int deleteCreatedBefore(@Param("before") LocalDateTime before);
+}
@@ -0,0 +1,51 @@
+package org.example.accounting.repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import org.example.accounting.domain.OutboxMessage;
+import org.example.accounting.domain.OutboxStatus;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * 事务发件箱仓储。
+ */
+public interface OutboxMessageRepository extends JpaRepository<OutboxMessage, Long> {
+
+    @Query("select m from OutboxMessage m where m.status = org.example.accounting.domain.OutboxStatus.PENDING "
+            + "and m.nextAttemptAt <= :now order by m.nextAttemptAt asc, m.id asc")
+    List<OutboxMessage> findDue(@Param("now") LocalDateTime now, Pageable pageable);
+
+    /**
+     * 认领一条到期消息：把下次投递时间推迟到租约到期。返回 0 表示已被其他节点认领。
+     */
+    @Transactional
+    @Modifying
+    @Query("update OutboxMessage m set m.nextAttemptAt = :leaseUntil where m.id = :id "
+            + "and m.status = org.example.accounting.domain.OutboxStatus.PENDING and m.nextAttemptAt <= :now")
+    int claim(@Param("id") Long id, @Param("now") LocalDateTime now, @Param("leaseUntil") LocalDateTime leaseUntil);
+
+    @Transactional
+    @Modifying
+    @Query("update OutboxMessage m set m.status = org.example.accounting.domain.OutboxStatus.DONE, "
+            + "m.processedAt = :processedAt, m.lastError = null where m.id = :id")
+    int markDone(@Param("id") Long id, @Param("processedAt") LocalDateTime processedAt);
+
+    @Transactional
+    @Modifying
+    @Query("update OutboxMessage m set m.status = :status, m.attempts = :attempts, "
+            + "m.nextAttemptAt = :nextAttemptAt, m.lastError = :lastError where m.id = :id")
+    int markFailedAttempt(@Param("id") Long id, @Param("status") OutboxStatus status,
+            @Param("attempts") Integer attempts, @Param("nextAttemptAt") LocalDateTime nextAttemptAt,
+            @Param("lastError") String lastError);
+
+    @Transactional
+    @Modifying
+    @Query("delete from OutboxMessage m where m.status = org.example.accounting.domain.OutboxStatus.DONE "
+            + "and m.processedAt < :before")
+    int deleteDoneBefore(@Param("before") LocalDateTime before);
+}
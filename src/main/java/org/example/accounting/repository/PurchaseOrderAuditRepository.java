@@ -4,7 +4,8 @@ import java.util.List;
 import org.example.accounting.domain.PurchaseOrderAudit;
 import org.springframework.data.jpa.repository.JpaRepository;
 
-public interface PurchaseOrderAuditRepository extends JpaRepository<PurchaseOrderAudit, Long> {
+public interface PurchaseOrderAuditRepository extends JpaRepository<PurchaseOrderAudit, Long>,
+        PurchaseOrderAuditRepositoryCustom {
     List<PurchaseOrderAudit> findByOrderIdOrderByCreatedAtDesc(Long orderId);
 }
 
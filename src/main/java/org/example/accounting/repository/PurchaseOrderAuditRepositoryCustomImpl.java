@@ -0,0 +1,52 @@
+package org.example.accounting.repository;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.List;
+import org.example.accounting.domain.PurchaseOrderAudit;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * {@link PurchaseOrderAuditRepositoryCustom} 的 JDBC 实现。
+ */
+class PurchaseOrderAuditRepositoryCustomImpl implements PurchaseOrderAuditRepositoryCustom {
+
+    private static final String INSERT = "insert into purchase_order_audits "
+            + "(order_id, action, actor, comment, created_at) values (?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    PurchaseOrderAuditRepositoryCustomImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public void batchInsert(List<PurchaseOrderAudit> audits) {
+        if (audits == null || audits.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(INSERT, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                PurchaseOrderAudit a = audits.get(i);
+                if (a.getOrderId() != null) {
+                    ps.setLong(1, a.getOrderId());
+                } else {
+                    ps.setNull(1, Types.BIGINT);
+                }
+                ps.setString(2, a.getAction());
+                ps.setString(3, a.getActor());
+                ps.setString(4, a.getComment());
+                ps.setTimestamp(5, Timestamp.valueOf(a.getCreatedAt()));
+            }
+
+            @Override
+            public int getBatchSize() {
+                return audits.size();
+            }
+        });
+    }
+}
@@ -1,17 +1,70 @@
 package org.example.accounting.repository;
 
+import jakarta.persistence.LockModeType;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import org.example.accounting.domain.PurchaseOrder;
 import org.example.accounting.domain.PurchaseStatus;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 public interface PurchaseOrderRepository extends JpaRepository<PurchaseOrder, Long> {
-    List<PurchaseOrder> findByCreatedBy(String createdBy);
-    List<PurchaseOrder> findByStatus(PurchaseStatus status);
-}
 
+    /**
+     * 列表查询的公共过滤条件，参数为空时对应条件不生效。
+     */
+    String ORDER_FILTER = "(:createdBy is null or o.createdBy = :createdBy) "
+            + "and (:status is null or o.status = :status) "
+            + "and (:supplierId is null or o.supplierId = :supplierId) "
+            + "and (:fromTime is null or o.createdAt >= :fromTime) "
+            + "and (:toTime is null or o.createdAt < :toTime)";
 
+    List<PurchaseOrder> findByCreatedBy(String createdBy);
+    List<PurchaseOrder> findByStatus(PurchaseStatus status);
 
+    /**
+     * 批量审核第一步：锁定给定 ID 中仍待审核的采购单，并发的审核请求在此排队。
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select o from PurchaseOrder o where o.id in :ids and o.status = :status order by o.id")
+    List<PurchaseOrder> findByIdInAndStatusForUpdate(@Param("ids") Collection<Long> ids,
+            @Param("status") PurchaseStatus status);
 
+    /**
+     * 批量审核第二步：一条 UPDATE 写入审核结果（只作用于仍待审核的采购单）。
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("update PurchaseOrder o set o.status = :status, o.reviewedBy = :reviewer, o.reviewedAt = :reviewedAt, "
+            + "o.rejectionReason = :reason where o.id in :ids "
+            + "and o.status = org.example.accounting.domain.PurchaseStatus.PENDING")
+    int updateReview(@Param("ids") Collection<Long> ids, @Param("status") PurchaseStatus status,
+            @Param("reviewer") String reviewer, @Param("reviewedAt") LocalDateTime reviewedAt,
+            @Param("reason") String reason);
 
+    /**
+     * 采购单列表（offset 分页），按创建时间倒序；各过滤条件为空时不生效。
+     */
+    @Query(value = "select o from PurchaseOrder o where " + ORDER_FILTER + " order by o.createdAt desc, o.id desc",
+            countQuery = "select count(o) from PurchaseOrder o where " + ORDER_FILTER)
+    Page<PurchaseOrder> search(@Param("createdBy") String createdBy, @Param("status") PurchaseStatus status,
+            @Param("supplierId") Long supplierId, @Param("fromTime") LocalDateTime fromTime,
+            @Param("toTime") LocalDateTime toTime, Pageable pageable);
 
+    /**
+     * 采购单列表（键集分页），按 (createdAt desc, id desc) 取游标之后的一页。
+     */
+    @Query("select o from PurchaseOrder o where " + ORDER_FILTER
+            + " and (:afterTime is null or o.createdAt < :afterTime or (o.createdAt = :afterTime and o.id < :afterId))"
+            + " order by o.createdAt desc, o.id desc")
+    Slice<PurchaseOrder> searchSliceAfter(@Param("createdBy") String createdBy, @Param("status") PurchaseStatus status,
+            @Param("supplierId") Long supplierId, @Param("fromTime") LocalDateTime fromTime,
+            @Param("toTime") LocalDateTime toTime, @Param("afterTime") LocalDateTime afterTime,
+            @Param("afterId") Long afterId, Pageable pageable);
+}
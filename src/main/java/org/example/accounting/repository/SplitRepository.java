@@ -51,6 +51,12 @@ public interface SplitRepository extends JpaRepository<Split, Long> {
             @Param("start") LocalDateTime start,
             @Param("end") LocalDateTime end);
 
+    /**
+     * 批量查询交易的分录备注，返回 [transactionId, memo]（用于重建检索索引，不加载分录实体）。
+     */
+    @Query("select s.transaction.id, s.memo from Split s where s.transaction.id in :transactionIds and s.memo is not null")
+    List<Object[]> findMemosByTransactionIdIn(@Param("transactionIds") Collection<Long> transactionIds);
+
     /**
      * 检查账户是否有交易记录（分录）。
      *
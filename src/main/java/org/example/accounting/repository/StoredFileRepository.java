@@ -0,0 +1,32 @@
+package org.example.accounting.repository;
+
+import org.example.accounting.domain.StoredFile;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * 内容寻址文件仓储（引用计数以单条 UPDATE 原子增减）。
+ */
+public interface StoredFileRepository extends JpaRepository<StoredFile, String> {
+
+    @Transactional
+    @Modifying
+    @Query("update StoredFile f set f.refCount = f.refCount + 1 where f.sha256 = :sha256")
+    int incrementRef(@Param("sha256") String sha256);
+
+    @Transactional
+    @Modifying
+    @Query("update StoredFile f set f.refCount = f.refCount - 1 where f.sha256 = :sha256 and f.refCount > 0")
+    int decrementRef(@Param("sha256") String sha256);
+
+    /**
+     * 删除引用已归零的记录，返回 1 表示可以删除物理文件。
+     */
+    @Transactional
+    @Modifying
+    @Query("delete from StoredFile f where f.sha256 = :sha256 and f.refCount <= 0")
+    int deleteUnreferenced(@Param("sha256") String sha256);
+}
@@ -2,14 +2,13 @@ package org.example.accounting.repository;
 
 import java.util.List;
 import org.example.accounting.domain.Supplier;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 
 public interface SupplierRepository extends JpaRepository<Supplier, Long> {
     List<Supplier> findByNameContainingIgnoreCaseOrProductNameContainingIgnoreCase(String name, String productName);
-}
-
-
-
-
-
 
+    Page<Supplier> findByNameContainingIgnoreCaseOrProductNameContainingIgnoreCase(String name, String productName,
+                                                                                  Pageable pageable);
+}
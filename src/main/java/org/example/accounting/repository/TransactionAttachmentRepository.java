@@ -1,18 +1,51 @@
 package org.example.accounting.repository;
 
 import org.example.accounting.domain.TransactionAttachment;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 /**
  * 交易附件仓储接口。
  */
-public interface TransactionAttachmentRepository extends JpaRepository<TransactionAttachment, Long> {
+public interface TransactionAttachmentRepository extends JpaRepository<TransactionAttachment, Long>,
+        TransactionAttachmentRepositoryCustom {
     
     /**
      * 根据交易ID查找所有附件。
      */
     List<TransactionAttachment> findByTransactionId(Long transactionId);
+
+    /**
+     * 附件导出行：只含打包所需的列，不加载实体。
+     */
+    record ExportRow(Long id, Long transactionId, String reference, String originalFilename,
+            String storedFilename, String contentType, Long fileSize, String contentEncoding) {
+    }
+
+    // ===== 附件导出（按 transactionId, id 升序键集分批，afterTransactionId/afterId 为上一批最后一行） =====
+
+    @Query("select new org.example.accounting.repository.TransactionAttachmentRepository$ExportRow("
+            + "a.id, t.id, t.reference, a.originalFilename, a.storedFilename, a.contentType, a.fileSize, a.contentEncoding) "
+            + "from TransactionAttachment a join a.transaction t "
+            + "where t.tradeDate >= :start and t.tradeDate < :end "
+            + "and (t.id > :afterTransactionId or (t.id = :afterTransactionId and a.id > :afterId)) "
+            + "order by t.id, a.id")
+    List<ExportRow> findExportRowsByTradeDate(@Param("start") LocalDateTime start, @Param("end") LocalDateTime end,
+            @Param("afterTransactionId") Long afterTransactionId, @Param("afterId") Long afterId, Pageable pageable);
+
+    @Query("select new org.example.accounting.repository.TransactionAttachmentRepository$ExportRow("
+            + "a.id, t.id, t.reference, a.originalFilename, a.storedFilename, a.contentType, a.fileSize, a.contentEncoding) "
+            + "from TransactionAttachment a join a.transaction t "
+            + "where t.id in :transactionIds "
+            + "and (t.id > :afterTransactionId or (t.id = :afterTransactionId and a.id > :afterId)) "
+            + "order by t.id, a.id")
+    List<ExportRow> findExportRowsByTransactionIdIn(@Param("transactionIds") Collection<Long> transactionIds,
+            @Param("afterTransactionId") Long afterTransactionId, @Param("afterId") Long afterId, Pageable pageable);
 }
 
@@ -0,0 +1,15 @@
+package org.example.accounting.repository;
+
+import java.util.List;
+import org.example.accounting.domain.TransactionAttachment;
+
+/**
+ * 交易附件的批量写入。
+ */
+public interface TransactionAttachmentRepositoryCustom {
+
+    /**
+     * 以一次 JDBC 批处理插入多条附件记录（IDENTITY 主键下 JPA 无法批量插入）；不回填主键。
+     */
+    void batchInsert(List<TransactionAttachment> attachments);
+}
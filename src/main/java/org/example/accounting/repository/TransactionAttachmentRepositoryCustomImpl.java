@@ -0,0 +1,55 @@
+package org.example.accounting.repository;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.List;
+import org.example.accounting.domain.TransactionAttachment;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * {@link TransactionAttachmentRepositoryCustom} 的 JDBC 实现。
+ */
+class TransactionAttachmentRepositoryCustomImpl implements TransactionAttachmentRepositoryCustom {
+
+    private static final String INSERT = "insert into transaction_attachments "
+            + "(transaction_id, original_filename, stored_filename, content_type, file_size, content_encoding, uploaded_at) "
+            + "values (?, ?, ?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    TransactionAttachmentRepositoryCustomImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public void batchInsert(List<TransactionAttachment> attachments) {
+        if (attachments == null || attachments.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(INSERT, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                TransactionAttachment a = attachments.get(i);
+                ps.setLong(1, a.getTransaction().getId());
+                ps.setString(2, a.getOriginalFilename());
+                ps.setString(3, a.getStoredFilename());
+                ps.setString(4, a.getContentType());
+                if (a.getFileSize() != null) {
+                    ps.setLong(5, a.getFileSize());
+                } else {
+                    ps.setNull(5, Types.BIGINT);
+                }
+                ps.setString(6, a.getContentEncoding());
+                ps.setTimestamp(7, Timestamp.valueOf(a.getUploadedAt()));
+            }
+
+            @Override
+            public int getBatchSize() {
+                return attachments.size();
+            }
+        });
+    }
+}
@@ -2,13 +2,14 @@ package org.example.accounting.repository;
 
 import org.example.accounting.domain.TransactionDraft;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import java.util.Collection;
 import java.util.List;
 
 public interface TransactionDraftRepository extends JpaRepository<TransactionDraft, Long> {
     List<TransactionDraft> findByCreatedBy(String createdBy);
-}
-
-
-
-
 
+    @Query("select d.purchaseOrderId from TransactionDraft d where d.purchaseOrderId in :ids")
+    List<Long> findExistingPurchaseOrderIds(@Param("ids") Collection<Long> purchaseOrderIds);
+}
@@ -0,0 +1,165 @@
+package org.example.accounting.repository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.TypedQuery;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.example.accounting.domain.DebitCredit;
+import org.example.accounting.domain.Transaction;
+import org.springframework.stereotype.Repository;
+
+/**
+ * 交易多条件查询构造器。
+ * 分录级条件（账户、商品、金额、方向）合并为一个 {@code t.id in (select ... from Split s ...)} 子查询，
+ * 保证这些条件作用于同一条分录；其余条件全部下推到 SQL，不在内存中过滤。
+ * 条件的书写顺序不影响执行计划，访问路径由数据库优化器按现有索引选择
+ * （splits.account_id、splits.commodity_id、transactions(created_by, cleared, trade_date, id)、transactions(trade_date, id)）。
+ * 结果统一按 (tradeDate desc, id desc) 排序，可配合 {@code TransactionCursor} 做键集分页。
+ */
+@Repository
+public class TransactionQueryBuilder {
+
+    private final EntityManager entityManager;
+
+    public TransactionQueryBuilder(EntityManager entityManager) {
+        this.entityManager = entityManager;
+    }
+
+    /**
+     * 开始构造一个新查询。
+     */
+    public Query query() {
+        return new Query();
+    }
+
+    /**
+     * 可链式追加条件的查询；参数为空的条件会被忽略。
+     */
+    public final class Query {
+
+        private final List<String> splitConditions = new ArrayList<>();
+        private final List<String> predicates = new ArrayList<>();
+        private final Map<String, Object> params = new LinkedHashMap<>();
+
+        private Query() {
+        }
+
+        public Query accounts(Collection<Long> accountIds) {
+            if (accountIds != null && !accountIds.isEmpty()) {
+                splitCondition("s.account.id in :accountIds", "accountIds", accountIds);
+            }
+            return this;
+        }
+
+        public Query commodity(Long commodityId) {
+            if (commodityId != null) {
+                splitCondition("s.commodity.id = :commodityId", "commodityId", commodityId);
+            }
+            return this;
+        }
+
+        public Query amountBetween(BigDecimal min, BigDecimal max) {
+            if (min != null) {
+                splitCondition("s.amount >= :minAmount", "minAmount", min);
+            }
+            if (max != null) {
+                splitCondition("s.amount <= :maxAmount", "maxAmount", max);
+            }
+            return this;
+        }
+
+        public Query direction(DebitCredit direction) {
+            if (direction != null) {
+                splitCondition("s.direction = :direction", "direction", direction);
+            }
+            return this;
+        }
+
+        public Query operator(String createdBy) {
+            if (createdBy != null && !createdBy.isBlank()) {
+                predicate("t.createdBy = :createdBy", "createdBy", createdBy);
+            }
+            return this;
+        }
+
+        /**
+         * 交易日期范围：[start, end)。
+         */
+        public Query tradeDateBetween(LocalDateTime start, LocalDateTime end) {
+            if (start != null) {
+                predicate("t.tradeDate >= :start", "start", start);
+            }
+            if (end != null) {
+                predicate("t.tradeDate < :end", "end", end);
+            }
+            return this;
+        }
+
+        public Query cleared(Boolean cleared) {
+            if (cleared != null) {
+                predicate("t.cleared = :cleared", "cleared", cleared);
+            }
+            return this;
+        }
+
+        public Query rejected(Boolean rejected) {
+            if (rejected != null) {
+                predicate("t.rejected = :rejected", "rejected", rejected);
+            }
+            return this;
+        }
+
+        /**
+         * 查询排在 (afterDate, afterId) 之后的最多 limit 条交易；afterDate 为空表示第一页。
+         */
+        public List<Transaction> fetch(LocalDateTime afterDate, Long afterId, int limit) {
+            List<String> where = where();
+            Map<String, Object> bound = new LinkedHashMap<>(params);
+            if (afterDate != null && afterId != null) {
+                where.add("(t.tradeDate < :afterDate or (t.tradeDate = :afterDate and t.id < :afterId))");
+                bound.put("afterDate", afterDate);
+                bound.put("afterId", afterId);
+            }
+            String jpql = "select t from Transaction t" + toWhere(where) + " order by t.tradeDate desc, t.id desc";
+            TypedQuery<Transaction> query = entityManager.createQuery(jpql, Transaction.class);
+            bound.forEach(query::setParameter);
+            query.setMaxResults(limit);
+            return query.getResultList();
+        }
+
+        public long count() {
+            String jpql = "select count(t) from Transaction t" + toWhere(where());
+            TypedQuery<Long> query = entityManager.createQuery(jpql, Long.class);
+            params.forEach(query::setParameter);
+            return query.getSingleResult();
+        }
+
+        private void splitCondition(String jpql, String name, Object value) {
+            splitConditions.add(jpql);
+            params.put(name, value);
+        }
+
+        private void predicate(String jpql, String name, Object value) {
+            predicates.add(jpql);
+            params.put(name, value);
+        }
+
+        private List<String> where() {
+            List<String> where = new ArrayList<>(predicates);
+            if (!splitConditions.isEmpty()) {
+                where.add("t.id in (select s.transaction.id from Split s where "
+                        + String.join(" and ", splitConditions) + ")");
+            }
+            return where;
+        }
+
+        private String toWhere(List<String> where) {
+            return where.isEmpty() ? "" : " where " + String.join(" and ", where);
+        }
+    }
+}
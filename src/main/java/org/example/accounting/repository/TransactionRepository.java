@@ -1,13 +1,57 @@
 package org.example.accounting.repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
 import org.example.accounting.domain.Transaction;
+import org.example.accounting.dto.TransactionDtos.TransactionSummaryResponse;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 public interface TransactionRepository extends JpaRepository<Transaction, Long> {
+
+    /**
+     * 摘要视图的构造器投影：交易头 + 分录数 + 借方合计，后接 where 条件与 {@link #SUMMARY_GROUP}。
+     */
+    String SUMMARY_SELECT = "select new org.example.accounting.dto.TransactionDtos$TransactionSummaryResponse("
+            + "t.id, t.tradeDate, t.description, t.reference, t.createdBy, t.cleared, t.rejected, count(s.id), "
+            + "sum(case when s.direction = org.example.accounting.domain.DebitCredit.DEBIT then s.amount end)) "
+            + "from Transaction t left join t.splits s ";
+    String SUMMARY_GROUP = " group by t.id, t.tradeDate, t.description, t.reference, t.createdBy, t.cleared, t.rejected";
+    String SEARCH_TEXT = "(:q is null or lower(t.description) like concat('%', lower(:q), '%') "
+            + "or lower(t.reference) like concat('%', lower(:q), '%'))";
+    String SEEK_AFTER = "(:afterDate is null or t.tradeDate < :afterDate "
+            + "or (t.tradeDate = :afterDate and t.id < :afterId))";
+    String SEEK_ORDER = " order by t.tradeDate desc, t.id desc";
+
     Page<Transaction> findByCleared(Boolean cleared, Pageable pageable);
 
+    /**
+     * 按 ID 批量加载交易，并一次性抓取分录及分录关联的账户、商品（列表接口两阶段加载的第二步）。
+     */
+    @EntityGraph(attributePaths = {"splits", "splits.account", "splits.commodity"})
+    @Query("select t from Transaction t where t.id in :ids")
+    List<Transaction> findWithSplitsByIdIn(@Param("ids") Collection<Long> ids);
+
+    /**
+     * 按 ID 批量查询交易摘要：分录数与借方合计在 SQL 中聚合，不加载分录实体。
+     */
+    @Query(SUMMARY_SELECT + "where t.id in :ids" + SUMMARY_GROUP)
+    List<TransactionSummaryResponse> findSummariesByIdIn(@Param("ids") Collection<Long> ids);
+
+    long countByCleared(Boolean cleared);
+
+    /**
+     * 变更流：按变更序号升序取 (since, upTo] 区间内发生变更的交易。
+     */
+    @Query("select t from Transaction t where t.changeSeq > :since and t.changeSeq <= :upTo order by t.changeSeq asc")
+    List<Transaction> findChangedBetween(@Param("since") Long since, @Param("upTo") Long upTo, Pageable pageable);
+
     long countByCreatedByAndRejectedTrueAndClearedFalse(String createdBy);
 
     Page<Transaction> findByCreatedByAndRejectedTrueAndClearedFalse(String createdBy, Pageable pageable);
@@ -17,6 +61,78 @@ public interface TransactionRepository extends JpaRepository<Transaction, Long>
 
     @org.springframework.data.jpa.repository.Query("select t from Transaction t where t.cleared = true and t.createdBy = :createdBy and (:q is null or lower(t.description) like concat('%', lower(:q), '%') or lower(t.reference) like concat('%', lower(:q), '%'))")
     Page<Transaction> searchClearedByUser(@org.springframework.data.repository.query.Param("createdBy") String createdBy, @org.springframework.data.repository.query.Param("q") String q, Pageable pageable);
-}
 
+    @Query("select count(t) from Transaction t where t.cleared = true and (:q is null or lower(t.description) like concat('%', lower(:q), '%') or lower(t.reference) like concat('%', lower(:q), '%'))")
+    long countSearchCleared(@Param("q") String q);
+
+    @Query("select count(t) from Transaction t where t.cleared = true and t.createdBy = :createdBy and (:q is null or lower(t.description) like concat('%', lower(:q), '%') or lower(t.reference) like concat('%', lower(:q), '%'))")
+    long countSearchClearedByUser(@Param("createdBy") String createdBy, @Param("q") String q);
+
+    // ===== 键集分页（按 tradeDate desc, id desc 排序，afterDate/afterId 为上一页最后一行；均为空表示第一页） =====
+
+    @Query("select t from Transaction t where (:afterDate is null "
+            + "or t.tradeDate < :afterDate or (t.tradeDate = :afterDate and t.id < :afterId)) "
+            + "order by t.tradeDate desc, t.id desc")
+    Slice<Transaction> findSliceAfter(@Param("afterDate") LocalDateTime afterDate,
+            @Param("afterId") Long afterId, Pageable pageable);
+
+    @Query("select t from Transaction t where t.cleared = :cleared and (:afterDate is null "
+            + "or t.tradeDate < :afterDate or (t.tradeDate = :afterDate and t.id < :afterId)) "
+            + "order by t.tradeDate desc, t.id desc")
+    Slice<Transaction> findSliceByClearedAfter(@Param("cleared") Boolean cleared,
+            @Param("afterDate") LocalDateTime afterDate, @Param("afterId") Long afterId, Pageable pageable);
 
+    @Query("select t from Transaction t where t.cleared = true "
+            + "and (:q is null or lower(t.description) like concat('%', lower(:q), '%') or lower(t.reference) like concat('%', lower(:q), '%')) "
+            + "and (:afterDate is null or t.tradeDate < :afterDate or (t.tradeDate = :afterDate and t.id < :afterId)) "
+            + "order by t.tradeDate desc, t.id desc")
+    Slice<Transaction> searchClearedSliceAfter(@Param("q") String q,
+            @Param("afterDate") LocalDateTime afterDate, @Param("afterId") Long afterId, Pageable pageable);
+
+    @Query("select t from Transaction t where t.cleared = true and t.createdBy = :createdBy "
+            + "and (:q is null or lower(t.description) like concat('%', lower(:q), '%') or lower(t.reference) like concat('%', lower(:q), '%')) "
+            + "and (:afterDate is null or t.tradeDate < :afterDate or (t.tradeDate = :afterDate and t.id < :afterId)) "
+            + "order by t.tradeDate desc, t.id desc")
+    Slice<Transaction> searchClearedByUserSliceAfter(@Param("createdBy") String createdBy, @Param("q") String q,
+            @Param("afterDate") LocalDateTime afterDate, @Param("afterId") Long afterId, Pageable pageable);
+
+    // ===== 摘要视图：分页/键集查询本身即为构造器投影，一次查询得到整页摘要 =====
+
+    @Query(value = SUMMARY_SELECT + SUMMARY_GROUP,
+            countQuery = "select count(t) from Transaction t")
+    Page<TransactionSummaryResponse> findSummaries(Pageable pageable);
+
+    @Query(value = SUMMARY_SELECT + "where t.cleared = :cleared" + SUMMARY_GROUP,
+            countQuery = "select count(t) from Transaction t where t.cleared = :cleared")
+    Page<TransactionSummaryResponse> findSummariesByCleared(@Param("cleared") Boolean cleared, Pageable pageable);
+
+    @Query(value = SUMMARY_SELECT + "where t.cleared = true and " + SEARCH_TEXT + SUMMARY_GROUP,
+            countQuery = "select count(t) from Transaction t where t.cleared = true and " + SEARCH_TEXT)
+    Page<TransactionSummaryResponse> searchClearedSummaries(@Param("q") String q, Pageable pageable);
+
+    @Query(value = SUMMARY_SELECT + "where t.cleared = true and t.createdBy = :createdBy and " + SEARCH_TEXT
+            + SUMMARY_GROUP,
+            countQuery = "select count(t) from Transaction t where t.cleared = true and t.createdBy = :createdBy and "
+                    + SEARCH_TEXT)
+    Page<TransactionSummaryResponse> searchClearedSummariesByUser(@Param("createdBy") String createdBy,
+            @Param("q") String q, Pageable pageable);
+
+    @Query(SUMMARY_SELECT + "where " + SEEK_AFTER + SUMMARY_GROUP + SEEK_ORDER)
+    Slice<TransactionSummaryResponse> findSummarySliceAfter(@Param("afterDate") LocalDateTime afterDate,
+            @Param("afterId") Long afterId, Pageable pageable);
+
+    @Query(SUMMARY_SELECT + "where t.cleared = :cleared and " + SEEK_AFTER + SUMMARY_GROUP + SEEK_ORDER)
+    Slice<TransactionSummaryResponse> findSummarySliceByClearedAfter(@Param("cleared") Boolean cleared,
+            @Param("afterDate") LocalDateTime afterDate, @Param("afterId") Long afterId, Pageable pageable);
+
+    @Query(SUMMARY_SELECT + "where t.cleared = true and " + SEARCH_TEXT + " and " + SEEK_AFTER
+            + SUMMARY_GROUP + SEEK_ORDER)
+    Slice<TransactionSummaryResponse> searchClearedSummarySliceAfter(@Param("q") String q,
+            @Param("afterDate") LocalDateTime afterDate, @Param("afterId") Long afterId, Pageable pageable);
+
+    @Query(SUMMARY_SELECT + "where t.cleared = true and t.createdBy = :createdBy and " + SEARCH_TEXT + " and "
+            + SEEK_AFTER + SUMMARY_GROUP + SEEK_ORDER)
+    Slice<TransactionSummaryResponse> searchClearedSummaryByUserSliceAfter(@Param("createdBy") String createdBy,
+            @Param("q") String q, @Param("afterDate") LocalDateTime afterDate, @Param("afterId") Long afterId,
+            Pageable pageable);
+}
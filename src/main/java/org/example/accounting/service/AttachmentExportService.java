@@ -0,0 +1,175 @@
+package org.example.accounting.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.NoSuchFileException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+import org.example.accounting.exception.BusinessException;
+import org.example.accounting.repository.TransactionAttachmentRepository;
+import org.example.accounting.repository.TransactionAttachmentRepository.ExportRow;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+/**
+ * 附件批量导出：把一段时间内（或指定交易的）全部附件打包为 ZIP 直接写入输出流。
+ * 附件元数据按键集分批查询，文件逐个边读边压缩写出，不生成临时归档、不整体缓冲文件，
+ * 内存占用与导出总量无关。条目名为“参考号_交易ID/原文件名”。
+ */
+@Service
+public class AttachmentExportService {
+
+    private static final Logger log = LoggerFactory.getLogger(AttachmentExportService.class);
+
+    private static final int BATCH_SIZE = 500;
+    private static final int MAX_TRANSACTION_IDS = 1000;
+
+    private final TransactionAttachmentRepository attachmentRepository;
+    private final FileStorageService fileStorageService;
+
+    public AttachmentExportService(TransactionAttachmentRepository attachmentRepository,
+                                   FileStorageService fileStorageService) {
+        this.attachmentRepository = attachmentRepository;
+        this.fileStorageService = fileStorageService;
+    }
+
+    /**
+     * 校验导出条件：指定交易 ID，或同时指定起止日期（含）。
+     */
+    public void validate(LocalDate from, LocalDate to, List<Long> transactionIds) {
+        if (transactionIds != null && !transactionIds.isEmpty()) {
+            if (transactionIds.size() > MAX_TRANSACTION_IDS) {
+                throw new BusinessException("一次最多导出 " + MAX_TRANSACTION_IDS + " 笔交易的附件");
+            }
+            return;
+        }
+        if (from == null || to == null) {
+            throw new BusinessException("请指定交易 ID 或起止日期");
+        }
+        if (to.isBefore(from)) {
+            throw new BusinessException("结束日期不能早于开始日期");
+        }
+    }
+
+    /**
+     * 把附件写成 ZIP 到输出流；调用方负责关闭 out。
+     * 文件已缺失的附件记录日志后跳过。
+     *
+     * @param from           交易日期起（含），transactionIds 非空时忽略
+     * @param to             交易日期止（含），transactionIds 非空时忽略
+     * @param transactionIds 指定交易 ID
+     */
+    public void export(LocalDate from, LocalDate to, List<Long> transactionIds, OutputStream out) throws IOException {
+        validate(from, to, transactionIds);
+        boolean byIds = transactionIds != null && !transactionIds.isEmpty();
+        LocalDateTime start = byIds ? null : from.atStartOfDay();
+        LocalDateTime end = byIds ? null : to.plusDays(1).atStartOfDay();
+
+        ZipOutputStream zip = new ZipOutputStream(out);
+        long afterTransactionId = 0;
+        long afterId = 0;
+        Long currentTransactionId = null;
+        // 只记录当前交易目录下已用的条目名，按交易分组遍历，切换交易时清空
+        Set<String> usedNames = new HashSet<>();
+        int count = 0;
+        List<ExportRow> batch;
+        do {
+            PageRequest page = PageRequest.of(0, BATCH_SIZE);
+            batch = byIds
+                    ? attachmentRepository.findExportRowsByTransactionIdIn(transactionIds, afterTransactionId, afterId, page)
+                    : attachmentRepository.findExportRowsByTradeDate(start, end, afterTransactionId, afterId, page);
+            for (ExportRow row : batch) {
+                afterTransactionId = row.transactionId();
+                afterId = row.id();
+                if (!row.transactionId().equals(currentTransactionId)) {
+                    currentTransactionId = row.transactionId();
+                    usedNames.clear();
+                }
+                if (writeEntry(zip, row, usedNames)) {
+                    count++;
+                }
+            }
+        } while (batch.size() == BATCH_SIZE);
+        zip.finish();
+        zip.flush();
+        log.info("附件导出完成：{} 个文件", count);
+    }
+
+    private boolean writeEntry(ZipOutputStream zip, ExportRow row, Set<String> usedNames) throws IOException {
+        InputStream in;
+        try {
+            in = fileStorageService.openDecoded(row.storedFilename(), row.contentEncoding());
+        } catch (NoSuchFileException ex) {
+            log.warn("附件文件缺失，跳过: attachmentId={}, storedFilename={}", row.id(), row.storedFilename());
+            return false;
+        }
+        try (in) {
+            ZipEntry entry = new ZipEntry(folderName(row) + "/" + uniqueName(sanitize(row.originalFilename()), usedNames));
+            // 已压缩格式（JPEG/PDF/ZIP 等）再压缩只浪费 CPU
+            long size = row.fileSize() != null ? row.fileSize() : 0;
+            zip.setLevel(FileStorageService.isCompressible(row.contentType(), size)
+                    ? Deflater.DEFAULT_COMPRESSION : Deflater.NO_COMPRESSION);
+            zip.putNextEntry(entry);
+            in.transferTo(zip);
+            zip.closeEntry();
+        }
+        return true;
+    }
+
+    private static String folderName(ExportRow row) {
+        String reference = sanitize(row.reference());
+        return reference.isEmpty() ? "TX-" + row.transactionId() : reference + "_" + row.transactionId();
+    }
+
+    /**
+     * 同一交易下重名的附件追加序号：a.pdf、a (2).pdf……
+     */
+    private static String uniqueName(String name, Set<String> usedNames) {
+        if (name.isEmpty()) {
+            name = "attachment";
+        }
+        if (usedNames.add(name)) {
+            return name;
+        }
+        int dot = name.lastIndexOf('.');
+        String base = dot > 0 ? name.substring(0, dot) : name;
+        String ext = dot > 0 ? name.substring(dot) : "";
+        for (int i = 2; ; i++) {
+            String candidate = base + " (" + i + ")" + ext;
+            if (usedNames.add(candidate)) {
+                return candidate;
+            }
+        }
+    }
+
+    /**
+     * 去掉路径分隔符、控制字符与 Windows 不允许的字符，防止条目逃逸出目录。
+     */
+    static String sanitize(String name) {
+        if (name == null) {
+            return "";
+        }
+        StringBuilder sb = new StringBuilder(name.length());
+        name.codePoints().forEach(cp -> {
+            if (cp < 0x20 || cp == 0x7f || "\\/:*?\"<>|".indexOf(cp) >= 0) {
+                sb.append('_');
+            } else {
+                sb.appendCodePoint(cp);
+            }
+        });
+        String result = sb.toString().trim();
+        while (result.startsWith(".")) {
+            result = result.substring(1);
+        }
+        return result;
+    }
+}
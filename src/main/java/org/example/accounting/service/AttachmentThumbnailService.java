@@ -0,0 +1,182 @@
+package org.example.accounting.service;
+
+import jakarta.annotation.PreDestroy;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+/**
+ * 附件缩略图的后台生成。
+ * 附件存储后提交到有界线程池，为图片附件生成长边不超过 {@value #MAX_EDGE} 像素的 JPEG 缩略图，
+ * 前端预览只需下载几十 KB 的缩略图而不是原图。大图按比例在解码时降采样，避免整图读入内存；
+ * 队列满时丢弃任务，之后访问缩略图时会再次提交。缩略图按存储名保存，内容寻址的相同文件共用一份。
+ * PDF 首页预览需要额外的渲染库，当前未支持。
+ */
+@Service
+public class AttachmentThumbnailService {
+
+    private static final Logger log = LoggerFactory.getLogger(AttachmentThumbnailService.class);
+
+    static final int MAX_EDGE = 320;
+    /**
+     * 超过该像素数的图片不生成缩略图（防止解压炸弹）。
+     */
+    private static final long MAX_PIXELS = 100_000_000L;
+
+    private final FileStorageService fileStorageService;
+    private final ThreadPoolExecutor workers;
+    private final Set<String> inFlight = ConcurrentHashMap.newKeySet();
+
+    public AttachmentThumbnailService(FileStorageService fileStorageService,
+                                      @Value("${file.thumbnail.threads:2}") int threads,
+                                      @Value("${file.thumbnail.queue-capacity:200}") int queueCapacity) {
+        this.fileStorageService = fileStorageService;
+        AtomicInteger seq = new AtomicInteger();
+        int size = Math.max(1, threads);
+        this.workers = new ThreadPoolExecutor(size, size, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, queueCapacity)), r -> {
+                    Thread t = new Thread(r, "thumbnail-" + seq.incrementAndGet());
+                    t.setDaemon(true);
+                    t.setPriority(Thread.MIN_PRIORITY);
+                    return t;
+                });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        workers.shutdownNow();
+    }
+
+    /**
+     * 是否为可生成缩略图的类型。
+     */
+    public boolean supports(String contentType) {
+        return contentType != null && contentType.toLowerCase().startsWith("image/")
+                && ImageIO.getImageReadersByMIMEType(contentType.toLowerCase()).hasNext();
+    }
+
+    /**
+     * 缩略图路径；尚未生成时返回 null。
+     */
+    public Path findThumbnail(String storedFilename) {
+        Path path = fileStorageService.getThumbnailPath(storedFilename);
+        return Files.isRegularFile(path) ? path : null;
+    }
+
+    /**
+     * 异步生成缩略图；类型不支持、已存在或正在生成时忽略。
+     *
+     * @param contentEncoding 附件的存储编码（gzip 时先解压再解码）
+     */
+    public void schedule(String storedFilename, String contentType, String contentEncoding) {
+        if (!supports(contentType) || findThumbnail(storedFilename) != null || !inFlight.add(storedFilename)) {
+            return;
+        }
+        try {
+            workers.execute(() -> {
+                try {
+                    generate(storedFilename, contentEncoding);
+                } catch (Exception ex) {
+                    log.warn("生成缩略图失败: {}", storedFilename, ex);
+                } finally {
+                    inFlight.remove(storedFilename);
+                }
+            });
+        } catch (RejectedExecutionException ex) {
+            inFlight.remove(storedFilename);
+            log.debug("缩略图队列已满，跳过: {}", storedFilename);
+        }
+    }
+
+    private void generate(String storedFilename, String contentEncoding) throws IOException {
+        BufferedImage image;
+        try (InputStream source = fileStorageService.openDecoded(storedFilename, contentEncoding)) {
+            image = read(source);
+        }
+        if (image == null) {
+            return;
+        }
+        BufferedImage thumbnail = scale(image);
+        Path target = fileStorageService.getThumbnailPath(storedFilename);
+        Files.createDirectories(target.getParent());
+        Path temp = Files.createTempFile(target.getParent(), "thumb-", ".part");
+        try {
+            try (OutputStream out = Files.newOutputStream(temp)) {
+                ImageIO.write(thumbnail, "jpg", out);
+            }
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * 解码图片，按长边与 MAX_EDGE 的比例做整数降采样。
+     */
+    private static BufferedImage read(InputStream source) throws IOException {
+        try (ImageInputStream in = ImageIO.createImageInputStream(source)) {
+            if (in == null) return null;
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(in);
+            if (!readers.hasNext()) return null;
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(in, true, true);
+                int width = reader.getWidth(0);
+                int height = reader.getHeight(0);
+                if ((long) width * height > MAX_PIXELS) {
+                    return null;
+                }
+                ImageReadParam param = reader.getDefaultReadParam();
+                int step = Math.max(1, Math.max(width, height) / (MAX_EDGE * 2));
+                param.setSourceSubsampling(step, step, 0, 0);
+                return reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    private static BufferedImage scale(BufferedImage image) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        double ratio = Math.min(1.0, (double) MAX_EDGE / Math.max(width, height));
+        int w = Math.max(1, (int) Math.round(width * ratio));
+        int h = Math.max(1, (int) Math.round(height * ratio));
+        // JPEG 不支持透明通道，铺白底
+        BufferedImage out = new BufferedImage(w, h, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = out.createGraphics();
+        try {
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            g.setColor(Color.WHITE);
+            g.fillRect(0, 0, w, h);
+            g.drawImage(image, 0, 0, w, h, null);
+        } finally {
+            g.dispose();
+        }
+        return out;
+    }
+}
@@ -0,0 +1,58 @@
+package org.example.accounting.service;
+
+import org.example.accounting.domain.ChangeSequence;
+import org.example.accounting.repository.ChangeSequenceRepository;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * 变更序列服务：为实体变更分配单调递增的版本号。
+ * {@link #next(String)} 加入调用方事务并锁住序列行直到提交，
+ * 保证“版本号 ≤ 当前值”的变更都已提交可见，客户端按版本号增量拉取不会漏数据。
+ * 行锁会串行化所有取号的事务，调用方应在分录、余额等处理都完成后、最后一次写入前再取号，
+ * 使锁只覆盖最后一条写入到提交这一小段。
+ */
+@Service
+public class ChangeSequenceService {
+
+    public static final String TRANSACTIONS = "transactions";
+
+    private final ChangeSequenceRepository repository;
+
+    public ChangeSequenceService(ChangeSequenceRepository repository) {
+        this.repository = repository;
+    }
+
+    /**
+     * 分配下一个序号。
+     */
+    @Transactional
+    public long next(String name) {
+        ChangeSequence seq = repository.findForUpdate(name).orElse(null);
+        if (seq == null) {
+            repository.saveAndFlush(ChangeSequence.builder().name(name).value(0L).build());
+            seq = repository.findForUpdate(name)
+                    .orElseThrow(() -> new IllegalStateException("变更序列初始化失败: " + name));
+        }
+        seq.setValue(seq.getValue() + 1);
+        return seq.getValue();
+    }
+
+    /**
+     * 当前已提交的最大序号，序列不存在时为 0。
+     */
+    @Transactional(readOnly = true)
+    public long current(String name) {
+        return repository.findById(name).map(ChangeSequence::getValue).orElse(0L);
+    }
+
+    /**
+     * 确保序列行存在（启动时调用，避免首次并发取号时重复插入）。
+     */
+    @Transactional
+    public void ensure(String name, long initialValue) {
+        if (!repository.existsById(name)) {
+            repository.save(ChangeSequence.builder().name(name).value(initialValue).build());
+        }
+    }
+}
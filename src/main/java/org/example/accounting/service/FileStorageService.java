@@ -2,26 +2,83 @@ package org.example.accounting.service;
 
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.nio.file.Path;
+import java.util.List;
+import java.util.Locale;
 
 /**
  * 文件存储服务接口。
  */
 public interface FileStorageService {
+
+    /**
+     * 已存储文件：存储名、原始大小与静态压缩编码（null 表示未压缩，否则为 gzip）。
+     */
+    record StoredUpload(String storedFilename, long size, String contentEncoding) {
+    }
     
     /**
      * 存储文件并返回存储的文件名。
+     * 不返回编码：本次写入不压缩，但去重命中已压缩的内容时仍是 gzip，需要编码的调用方应使用 {@link #storeFiles}。
      */
     String storeFile(MultipartFile file);
+
+    /**
+     * 并行存储多个文件，结果与入参顺序一致；任一文件失败时已存储的文件会被释放并抛出异常。
+     */
+    List<StoredUpload> storeFiles(List<MultipartFile> files);
     
     /**
-     * 获取文件的存储路径。
+     * 打开文件并按存储时的编码解压，返回原始内容。
      */
-    Path getFilePath(String storedFilename);
+    InputStream openDecoded(String storedFilename, String contentEncoding) throws IOException;
+
+    /**
+     * 按存储的原样（不解压）从 start 开始读取文件；返回的流至少包含 count 字节，调用方只读取所需部分。
+     */
+    InputStream openStored(String storedFilename, long start, long count) throws IOException;
+
+    /**
+     * 文件按存储原样的大小（字节）；不存在时返回 -1。
+     */
+    long storedSize(String storedFilename) throws IOException;
+
+    /**
+     * 文件在本地磁盘上的路径；文件在对象存储（或已迁移到冷层）时返回 null。
+     */
+    Path findLocalFile(String storedFilename);
+
+    /**
+     * 获取文件缩略图的存储路径（文件可能尚未生成）。
+     */
+    Path getThumbnailPath(String storedFilename);
     
     /**
      * 删除文件。
      */
     void deleteFile(String storedFilename);
+
+    /**
+     * 是否值得压缩：文本、XML/JSON/CSV、未压缩的位图与旧版 Office 文档；
+     * 已压缩的格式（JPEG/PNG/PDF/ZIP/OOXML 等）与小于 1 KB 的文件跳过。
+     */
+    static boolean isCompressible(String contentType, long size) {
+        if (contentType == null || size < 1024) {
+            return false;
+        }
+        String type = contentType.toLowerCase(Locale.ROOT);
+        int semicolon = type.indexOf(';');
+        if (semicolon >= 0) {
+            type = type.substring(0, semicolon).trim();
+        }
+        return type.startsWith("text/")
+                || type.endsWith("/xml") || type.endsWith("+xml")
+                || type.endsWith("/json") || type.endsWith("+json")
+                || type.endsWith("/csv") || type.equals("application/x-csv")
+                || type.equals("image/tiff") || type.equals("image/bmp")
+                || type.equals("application/msword") || type.equals("application/vnd.ms-excel");
+    }
 }
 
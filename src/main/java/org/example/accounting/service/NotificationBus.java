@@ -0,0 +1,21 @@
+package org.example.accounting.service;
+
+import java.util.Map;
+
+/**
+ * 跨节点通知总线。
+ * 每条通知只发布一次，由每个节点推送给各自本地的 SSE 连接（{@link NotificationService}），
+ * 多实例部署时连在任一节点上的用户都能收到其他节点产生的事件。
+ * 通过 {@code notification.bus.type} 选择实现：{@code local}（默认，单节点）或 {@code jdbc}（共享数据库表轮询，无需外部消息中间件）。
+ */
+public interface NotificationBus {
+
+    /**
+     * 发布通知。
+     *
+     * @param recipient 接收者用户名；为 null 表示广播
+     * @param event     事件类型
+     * @param payload   负载
+     */
+    void publish(String recipient, String event, Map<String, ?> payload);
+}
@@ -0,0 +1,98 @@
+package org.example.accounting.service;
+
+import jakarta.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * 事务提交后合并推送 {@link NotificationEvent}。
+ * 事件在事务提交后才进入合并窗口（默认 100 ms）；窗口内同一类型、同一接收者的事件合并为一条推送：
+ * 只有一条时推送原负载并附带 {@code ids}，多条时推送 {@code {ids, count}}。
+ * 批量操作因此只产生一条事件，而不是每笔交易一条。事务回滚时事件被丢弃。
+ * 合并后的事件经 {@link NotificationBus} 发布，多实例部署时每个节点推送给各自的连接。
+ */
+@Component
+public class NotificationCoalescer {
+
+    private static final Logger log = LoggerFactory.getLogger(NotificationCoalescer.class);
+
+    private record Key(String recipient, String type) {
+    }
+
+    private final NotificationBus notificationBus;
+    private final long windowMillis;
+    private final Map<Key, List<NotificationEvent>> pending = new LinkedHashMap<>();
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "notification-coalescer");
+        t.setDaemon(true);
+        return t;
+    });
+
+    public NotificationCoalescer(NotificationBus notificationBus,
+                                 @Value("${notification.coalesce-window-ms:100}") long windowMillis) {
+        this.notificationBus = notificationBus;
+        this.windowMillis = Math.max(0, windowMillis);
+    }
+
+    /**
+     * 事务提交后接收事件；不在事务中发布的事件立即进入合并窗口。
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onEvent(NotificationEvent event) {
+        Key key = new Key(event.recipient(), event.type());
+        boolean first;
+        synchronized (pending) {
+            List<NotificationEvent> batch = pending.get(key);
+            first = batch == null;
+            if (first) {
+                batch = new ArrayList<>();
+                pending.put(key, batch);
+            }
+            batch.add(event);
+        }
+        if (first) {
+            scheduler.schedule(() -> flush(key), windowMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdown();
+    }
+
+    private void flush(Key key) {
+        List<NotificationEvent> batch;
+        synchronized (pending) {
+            batch = pending.remove(key);
+        }
+        if (batch == null || batch.isEmpty()) return;
+        List<Object> ids = new ArrayList<>(batch.size());
+        for (NotificationEvent e : batch) {
+            if (e.id() != null && !ids.contains(e.id())) ids.add(e.id());
+        }
+        Map<String, Object> payload = new HashMap<>();
+        if (batch.size() == 1) {
+            if (batch.get(0).payload() != null) payload.putAll(batch.get(0).payload());
+        } else {
+            payload.put("count", batch.size());
+        }
+        payload.put("ids", ids);
+        try {
+            notificationBus.publish(key.recipient(), key.type(), payload);
+        } catch (RuntimeException ex) {
+            log.warn("推送通知失败: type={}, recipient={}", key.type(), key.recipient(), ex);
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package org.example.accounting.service;
+
+import java.util.Map;
+
+/**
+ * 需要推送给客户端的领域事件。
+ * 由业务服务通过 {@code ApplicationEventPublisher} 在事务内发布，事务提交后才由 {@link NotificationCoalescer} 合并推送，
+ * 客户端收到通知再回查时一定能看到已提交的数据。
+ *
+ * @param recipient 接收者用户名；为 null 表示广播给所有用户
+ * @param type      事件类型（SSE event 名）
+ * @param id        业务主键（如交易 ID），合并后的批量事件以 ids 列表携带
+ * @param payload   单条事件的负载
+ */
+public record NotificationEvent(String recipient, String type, Object id, Map<String, ?> payload) {
+
+    public static NotificationEvent broadcast(String type, Object id, Map<String, ?> payload) {
+        return new NotificationEvent(null, type, id, payload);
+    }
+
+    public static NotificationEvent toUser(String recipient, String type, Object id, Map<String, ?> payload) {
+        return new NotificationEvent(recipient, type, id, payload);
+    }
+}
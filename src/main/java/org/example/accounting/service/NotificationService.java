@@ -10,26 +10,46 @@ public interface NotificationService {
     /**
      * 向指定用户名（或用户标识）发送事件通知。
      *
+     * @param eventId  由通知总线分配的事件 id，所有节点一致，客户端重连到任一节点都可按 Last-Event-ID 补发；
+     *                 同一节点上须按递增顺序推送。为 null 表示不可补发的事件（如总线写入失败后的本地推送）
      * @param username 接收者用户名（或标识）
      * @param event    事件类型
      * @param payload  负载（通常为 Map，可被序列化为 JSON）
      */
-    void notifyUser(String username, String event, Map<String, ?> payload);
+    void notifyUser(Long eventId, String username, String event, Map<String, ?> payload);
 
     /**
      * 向所有在线/连接的用户广播事件。
      *
+     * @param eventId 由通知总线分配的事件 id，约定同 {@link #notifyUser}
      * @param event   事件类型
      * @param payload 负载
      */
-    void notifyAllUsers(String event, Map<String, ?> payload);
+    void notifyAllUsers(Long eventId, String event, Map<String, ?> payload);
+
     /**
      * 注册一个 SSE 连接（SseEmitter）用于向指定用户或所有用户推送事件。
+     * 连接建立后首先收到 {@code connected} 事件，之后才是补发与新事件。
      * @param username 接收者用户名；若为 null 或空则表示订阅“所有用户”广播
      * @return 新建的 SseEmitter
      */
     org.springframework.web.servlet.mvc.method.annotation.SseEmitter registerEmitter(String username);
 
+    /**
+     * 注册 SSE 连接，并补发客户端断线期间错过的事件。
+     * @param username    接收者用户名；若为 null 或空则表示订阅“所有用户”广播
+     * @param lastEventId 客户端最后收到的事件 id（重连时浏览器通过 Last-Event-ID 请求头携带）；为空表示新连接
+     * @return 新建的 SseEmitter
+     */
+    org.springframework.web.servlet.mvc.method.annotation.SseEmitter registerEmitter(String username, String lastEventId);
+
+    /**
+     * 注册只接收指定事件类型的 SSE 连接（服务端过滤，未订阅的事件不会推送到该连接）。
+     * @param topics 订阅的事件类型；为 null 或空表示接收全部事件
+     */
+    org.springframework.web.servlet.mvc.method.annotation.SseEmitter registerEmitter(String username, String lastEventId,
+            java.util.Set<String> topics);
+
     /**
      * 取消注册某个 SseEmitter（当连接完成或超时时调用）。
      */
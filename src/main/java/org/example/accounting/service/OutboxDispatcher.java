@@ -0,0 +1,231 @@
+package org.example.accounting.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.example.accounting.domain.OutboxMessage;
+import org.example.accounting.domain.OutboxStatus;
+import org.example.accounting.repository.OutboxMessageRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+
+/**
+ * 发件箱投递器。
+ * 单线程按批取出到期消息，逐条“认领”（把下次投递时间推迟到租约到期，多节点下只有一个节点认领成功）后交给对应的
+ * {@link OutboxHandler}（支持批量的处理器一次收到同一轮的全部同类型消息）；成功标记为 DONE，失败按指数退避（带抖动）重试，超过最大次数标记为 FAILED。
+ * 投递在数据库事务之外执行；节点在投递中途崩溃时，租约到期后消息会被重新投递。
+ * 平时按 poll-ms 轮询，业务事务提交后由 {@link OutboxService} 立即唤醒。
+ */
+@Component
+public class OutboxDispatcher {
+
+    private static final Logger log = LoggerFactory.getLogger(OutboxDispatcher.class);
+
+    private static final int MAX_ERROR_LENGTH = 1000;
+
+    private final OutboxMessageRepository repository;
+    private final ObjectMapper objectMapper;
+    private final Map<String, OutboxHandler> handlers = new HashMap<>();
+    private final long pollMillis;
+    private final int batchSize;
+    private final int maxAttempts;
+    private final long baseBackoffMillis;
+    private final long maxBackoffMillis;
+    private final long leaseSeconds;
+    private final long retentionDays;
+    private final AtomicBoolean wakeUpPending = new AtomicBoolean();
+    private final ScheduledExecutorService worker = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "outbox-dispatcher");
+        t.setDaemon(true);
+        return t;
+    });
+    private volatile boolean started;
+    private long lastCleanup;
+
+    public OutboxDispatcher(OutboxMessageRepository repository,
+                            ObjectMapper objectMapper,
+                            List<OutboxHandler> handlers,
+                            @Value("${outbox.poll-ms:1000}") long pollMillis,
+                            @Value("${outbox.batch-size:50}") int batchSize,
+                            @Value("${outbox.max-attempts:10}") int maxAttempts,
+                            @Value("${outbox.base-backoff-ms:2000}") long baseBackoffMillis,
+                            @Value("${outbox.max-backoff-ms:3600000}") long maxBackoffMillis,
+                            @Value("${outbox.lease-seconds:300}") long leaseSeconds,
+                            @Value("${outbox.retention-days:7}") long retentionDays) {
+        this.repository = repository;
+        this.objectMapper = objectMapper;
+        for (OutboxHandler handler : handlers) {
+            if (this.handlers.put(handler.type(), handler) != null) {
+                throw new IllegalStateException("重复的发件箱处理器: " + handler.type());
+            }
+        }
+        this.pollMillis = Math.max(50, pollMillis);
+        this.batchSize = Math.max(1, batchSize);
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.baseBackoffMillis = Math.max(100, baseBackoffMillis);
+        this.maxBackoffMillis = Math.max(this.baseBackoffMillis, maxBackoffMillis);
+        this.leaseSeconds = Math.max(1, leaseSeconds);
+        this.retentionDays = retentionDays;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        started = true;
+        worker.scheduleWithFixedDelay(this::poll, pollMillis, pollMillis, TimeUnit.MILLISECONDS);
+        log.info("发件箱投递器已启动: handlers={}", handlers.keySet());
+    }
+
+    @PreDestroy
+    public void stop() {
+        worker.shutdownNow();
+    }
+
+    /**
+     * 立即安排一次投递（合并并发的唤醒请求）。
+     */
+    public void wakeUp() {
+        if (!started || !wakeUpPending.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            worker.execute(() -> {
+                wakeUpPending.set(false);
+                poll();
+            });
+        } catch (RejectedExecutionException ex) {
+            wakeUpPending.set(false);
+        }
+    }
+
+    /**
+     * 取出并投递全部到期消息；正常由投递线程调用，测试可直接调用。
+     */
+    void poll() {
+        try {
+            List<OutboxMessage> due;
+            do {
+                LocalDateTime now = LocalDateTime.now();
+                due = repository.findDue(now, PageRequest.of(0, batchSize));
+                Map<String, List<OutboxMessage>> batches = new LinkedHashMap<>();
+                for (OutboxMessage message : due) {
+                    if (Thread.currentThread().isInterrupted()) return;
+                    if (repository.claim(message.getId(), now, now.plusSeconds(leaseSeconds)) == 0) continue;
+                    OutboxHandler handler = handlers.get(message.getType());
+                    if (handler != null && handler.batched()) {
+                        batches.computeIfAbsent(message.getType(), k -> new ArrayList<>()).add(message);
+                    } else {
+                        dispatch(message);
+                    }
+                }
+                for (List<OutboxMessage> batch : batches.values()) {
+                    if (Thread.currentThread().isInterrupted()) return;
+                    dispatchBatch(batch);
+                }
+            } while (due.size() == batchSize);
+            cleanup();
+        } catch (Exception ex) {
+            log.warn("发件箱投递失败", ex);
+        }
+    }
+
+    private void dispatch(OutboxMessage message) {
+        OutboxHandler handler = handlers.get(message.getType());
+        int attempts = (message.getAttempts() != null ? message.getAttempts() : 0) + 1;
+        if (handler == null) {
+            repository.markFailedAttempt(message.getId(), OutboxStatus.FAILED, attempts, LocalDateTime.now(),
+                    "没有处理器: " + message.getType());
+            log.error("发件箱消息没有处理器: id={}, type={}", message.getId(), message.getType());
+            return;
+        }
+        try {
+            JsonNode payload = objectMapper.readTree(message.getPayload() != null ? message.getPayload() : "{}");
+            handler.handle(payload);
+            repository.markDone(message.getId(), LocalDateTime.now());
+        } catch (Exception ex) {
+            boolean exhausted = attempts >= maxAttempts;
+            LocalDateTime next = LocalDateTime.now().plusNanos(TimeUnit.MILLISECONDS.toNanos(backoff(attempts)));
+            repository.markFailedAttempt(message.getId(), exhausted ? OutboxStatus.FAILED : OutboxStatus.PENDING,
+                    attempts, next, truncate(ex.toString()));
+            if (exhausted) {
+                log.error("发件箱消息投递失败且不再重试: id={}, type={}, attempts={}",
+                        message.getId(), message.getType(), attempts, ex);
+            } else {
+                log.warn("发件箱消息投递失败，将于 {} 重试: id={}, type={}, attempts={}, error={}",
+                        next, message.getId(), message.getType(), attempts, ex.toString());
+            }
+        }
+    }
+
+    /**
+     * 同类型消息合并投递；整批失败时逐条重投，单条失败各自按退避重试。
+     */
+    private void dispatchBatch(List<OutboxMessage> batch) {
+        if (batch.size() == 1) {
+            dispatch(batch.get(0));
+            return;
+        }
+        OutboxHandler handler = handlers.get(batch.get(0).getType());
+        try {
+            List<JsonNode> payloads = new ArrayList<>(batch.size());
+            for (OutboxMessage message : batch) {
+                payloads.add(objectMapper.readTree(message.getPayload() != null ? message.getPayload() : "{}"));
+            }
+            handler.handleBatch(payloads);
+        } catch (Exception ex) {
+            log.warn("发件箱消息批量投递失败，改为逐条投递: type={}, size={}, error={}",
+                    handler.type(), batch.size(), ex.toString());
+            for (OutboxMessage message : batch) {
+                dispatch(message);
+            }
+            return;
+        }
+        LocalDateTime done = LocalDateTime.now();
+        for (OutboxMessage message : batch) {
+            repository.markDone(message.getId(), done);
+        }
+    }
+
+    /**
+     * 指数退避：base * 2^(attempts-1)，上限 maxBackoff，并在 [50%, 100%] 之间随机抖动，避免集中重试。
+     */
+    private long backoff(int attempts) {
+        long delay = baseBackoffMillis << Math.min(attempts - 1, 30);
+        if (delay <= 0 || delay > maxBackoffMillis) {
+            delay = maxBackoffMillis;
+        }
+        return delay / 2 + ThreadLocalRandom.current().nextLong(delay / 2 + 1);
+    }
+
+    private void cleanup() {
+        long now = System.currentTimeMillis();
+        if (retentionDays <= 0 || now - lastCleanup < TimeUnit.HOURS.toMillis(1)) {
+            return;
+        }
+        lastCleanup = now;
+        int removed = repository.deleteDoneBefore(LocalDateTime.now().minusDays(retentionDays));
+        if (removed > 0) {
+            log.info("已清理 {} 条已投递的发件箱消息", removed);
+        }
+    }
+
+    private static String truncate(String value) {
+        return value.length() <= MAX_ERROR_LENGTH ? value : value.substring(0, MAX_ERROR_LENGTH);
+    }
+}
@@ -0,0 +1,35 @@
+package org.example.accounting.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import java.util.List;
+
+/**
+ * 发件箱消息处理器：按消息类型执行副作用。
+ * 投递语义为“至少一次”（投递成功但标记失败、节点崩溃时会重投），处理器应尽量幂等；
+ * 抛出异常表示本次失败，由 {@link OutboxDispatcher} 按退避重试。
+ */
+public interface OutboxHandler {
+
+    /**
+     * 处理的消息类型。
+     */
+    String type();
+
+    void handle(JsonNode payload) throws Exception;
+
+    /**
+     * 是否支持批量处理：为 true 时投递器把同一轮取出的同类型消息合并交给 {@link #handleBatch}。
+     */
+    default boolean batched() {
+        return false;
+    }
+
+    /**
+     * 批量处理多条消息，整体成功或整体失败；失败时投递器改为逐条重投，避免一条坏消息拖累整批。
+     */
+    default void handleBatch(List<JsonNode> payloads) throws Exception {
+        for (JsonNode payload : payloads) {
+            handle(payload);
+        }
+    }
+}
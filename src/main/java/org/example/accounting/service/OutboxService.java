@@ -0,0 +1,77 @@
+package org.example.accounting.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.time.LocalDateTime;
+import java.util.Map;
+import org.example.accounting.domain.OutboxMessage;
+import org.example.accounting.domain.OutboxStatus;
+import org.example.accounting.repository.OutboxMessageRepository;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * 事务发件箱：在调用方的事务内写入待执行的副作用，事务提交后由 {@link OutboxDispatcher} 异步投递。
+ * 慢速的外部调用（SMTP 等）不再占用数据库事务与请求线程，业务回滚时副作用也不会发生。
+ */
+@Service
+public class OutboxService {
+
+    /**
+     * 邮件：{to, subject, body}
+     */
+    public static final String EMAIL = "EMAIL";
+    /**
+     * 采购单审批通过后生成交易草稿：{purchaseOrderId}
+     */
+    public static final String PURCHASE_DRAFT = "PURCHASE_DRAFT";
+
+    private final OutboxMessageRepository repository;
+    private final OutboxDispatcher dispatcher;
+    private final ObjectMapper objectMapper;
+
+    public OutboxService(OutboxMessageRepository repository, OutboxDispatcher dispatcher, ObjectMapper objectMapper) {
+        this.repository = repository;
+        this.dispatcher = dispatcher;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * 写入一条发件箱消息（加入调用方事务）；事务提交后立即唤醒投递器，不必等下一次轮询。
+     */
+    @Transactional
+    public void enqueue(String type, Map<String, ?> payload) {
+        String json;
+        try {
+            json = objectMapper.writeValueAsString(payload);
+        } catch (JsonProcessingException ex) {
+            throw new IllegalArgumentException("无法序列化发件箱消息: " + type, ex);
+        }
+        LocalDateTime now = LocalDateTime.now();
+        repository.save(OutboxMessage.builder()
+                .type(type)
+                .payload(json)
+                .status(OutboxStatus.PENDING)
+                .attempts(0)
+                .nextAttemptAt(now)
+                .createdAt(now)
+                .build());
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    dispatcher.wakeUp();
+                }
+            });
+        }
+    }
+
+    /**
+     * 发送邮件（提交后投递）。
+     */
+    public void enqueueEmail(String to, String subject, String body) {
+        enqueue(EMAIL, Map.of("to", to, "subject", subject, "body", body));
+    }
+}
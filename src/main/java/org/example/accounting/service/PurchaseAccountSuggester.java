@@ -0,0 +1,59 @@
+package org.example.accounting.service;
+
+import java.util.List;
+import org.example.accounting.domain.Account;
+import org.example.accounting.domain.AccountType;
+import org.example.accounting.repository.AccountRepository;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * 采购单入账的建议科目。
+ * {@link TransactionService#createDraftFromPurchase} 与 {@link TransactionDraftService} 共用同一套规则，避免两处各自演变。
+ */
+@Service
+public class PurchaseAccountSuggester {
+
+    private final AccountRepository accountRepository;
+
+    public PurchaseAccountSuggester(AccountRepository accountRepository) {
+        this.accountRepository = accountRepository;
+    }
+
+    /**
+     * 建议的借方与贷方科目；不足两个启用账户时两者均为 null。
+     */
+    public record Suggestion(Account debit, Account credit) {
+
+        public boolean isEmpty() {
+            return debit == null || credit == null;
+        }
+
+        public Long debitId() {
+            return debit != null ? debit.getId() : null;
+        }
+
+        public Long creditId() {
+            return credit != null ? credit.getId() : null;
+        }
+    }
+
+    /**
+     * 借方取费用类、贷方取负债类（应付）启用账户，同类型取 ID 最小者；
+     * 找不到时用前两个启用账户兜底，仍不足则不给建议。
+     */
+    @Transactional(readOnly = true)
+    public Suggestion suggest() {
+        Account debit = accountRepository.findFirstByTypeAndActiveTrueOrderByIdAsc(AccountType.EXPENSE).orElse(null);
+        Account credit = accountRepository.findFirstByTypeAndActiveTrueOrderByIdAsc(AccountType.LIABILITY).orElse(null);
+        if (debit == null || credit == null) {
+            List<Account> active = accountRepository.findTop2ByActiveTrueOrderByIdAsc();
+            if (active.size() < 2) {
+                return new Suggestion(null, null);
+            }
+            if (debit == null) debit = active.get(0);
+            if (credit == null) credit = active.get(1);
+        }
+        return new Suggestion(debit, credit);
+    }
+}
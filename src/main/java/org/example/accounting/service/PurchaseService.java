@@ -4,17 +4,34 @@ import org.example.accounting.domain.PurchaseOrder;
 import org.example.accounting.domain.PurchaseStatus;
 import org.example.accounting.domain.Supplier;
 import org.example.accounting.dto.PurchaseDtos.*;
+import org.example.accounting.dto.TransactionDtos.CursorSlice;
+import org.example.accounting.exception.BusinessException;
 import org.example.accounting.repository.PurchaseOrderRepository;
 import org.example.accounting.repository.PurchaseOrderAuditRepository;
 import org.example.accounting.domain.PurchaseOrderAudit;
 import org.example.accounting.repository.SupplierRepository;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * 采购服务，处理供应商与采购单的创建/审核等逻辑。
@@ -22,22 +39,37 @@ import java.util.List;
 @Service
 public class PurchaseService {
 
+    /**
+     * 单次批量审核的最大采购单数。
+     */
+    private static final int MAX_BATCH_REVIEW = 500;
+    /**
+     * 供应商搜索/补全返回的最大结果数与每页上限。
+     */
+    private static final int MAX_SUPPLIER_RESULTS = 100;
+    private static final int MAX_SUPPLIER_PAGE_SIZE = 50;
+    /**
+     * 采购单列表分页的默认与最大每页条数。
+     */
+    private static final int DEFAULT_ORDER_PAGE_SIZE = 50;
+    private static final int MAX_ORDER_PAGE_SIZE = 200;
+
     private final SupplierRepository supplierRepository;
     private final PurchaseOrderRepository orderRepository;
     private final PurchaseOrderAuditRepository auditRepository;
-    private final EmailService emailService;
-    private final org.example.accounting.service.TransactionDraftService transactionDraftService;
+    private final OutboxService outboxService;
+    private final SupplierSearchIndex supplierSearchIndex;
 
     public PurchaseService(SupplierRepository supplierRepository,
                            PurchaseOrderRepository orderRepository,
                            PurchaseOrderAuditRepository auditRepository,
-                           EmailService emailService,
-                           org.example.accounting.service.TransactionDraftService transactionDraftService) {
+                           OutboxService outboxService,
+                           SupplierSearchIndex supplierSearchIndex) {
         this.supplierRepository = supplierRepository;
         this.orderRepository = orderRepository;
         this.auditRepository = auditRepository;
-        this.emailService = emailService;
-        this.transactionDraftService = transactionDraftService;
+        this.outboxService = outboxService;
+        this.supplierSearchIndex = supplierSearchIndex;
     }
 
     @Transactional
@@ -48,12 +80,82 @@ public class PurchaseService {
         s.setEmail(req.getEmail());
         s.setProductName(req.getProductName());
         s.setUnitPrice(req.getUnitPrice());
-        return supplierRepository.save(s);
+        Supplier saved = supplierRepository.save(s);
+        // 提交后再写入检索索引，避免回滚的供应商出现在补全结果中
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    supplierSearchIndex.index(saved);
+                }
+            });
+        } else {
+            supplierSearchIndex.index(saved);
+        }
+        return saved;
     }
 
+    /**
+     * 搜索供应商（不分页，供下拉框等需要完整列表的场景）：查询词为空时按名称返回全部供应商，
+     * 否则返回全部命中，索引就绪时按补全的相关度排序。
+     */
     public List<Supplier> searchSuppliers(String q){
-        if(q == null || q.isBlank()) return supplierRepository.findAll();
-        return supplierRepository.findByNameContainingIgnoreCaseOrProductNameContainingIgnoreCase(q, q);
+        if (q == null || q.isBlank()) {
+            return supplierRepository.findAll(Sort.by("name", "id"));
+        }
+        if (!supplierSearchIndex.isReady()) {
+            return supplierRepository.findByNameContainingIgnoreCaseOrProductNameContainingIgnoreCase(q, q);
+        }
+        List<SupplierSearchIndex.Hit> hits = supplierSearchIndex.search(q, Integer.MAX_VALUE);
+        List<Long> ids = new ArrayList<>(hits.size());
+        for (SupplierSearchIndex.Hit hit : hits) {
+            ids.add(hit.id());
+        }
+        return suppliersInOrder(ids);
+    }
+
+    /**
+     * 供应商自动补全（分页）：由内存索引排名后按主键加载当前页；索引未就绪时回退到数据库查询。
+     * 结果总数最多 {@value #MAX_SUPPLIER_RESULTS} 条，每页最多 {@value #MAX_SUPPLIER_PAGE_SIZE} 条。
+     */
+    public Page<Supplier> autocompleteSuppliers(String q, Pageable pageable){
+        int size = Math.min(Math.max(pageable.isPaged() ? pageable.getPageSize() : 20, 1), MAX_SUPPLIER_PAGE_SIZE);
+        int page = pageable.isPaged() ? pageable.getPageNumber() : 0;
+        Pageable request = PageRequest.of(page, size);
+        if (request.getOffset() >= MAX_SUPPLIER_RESULTS) {
+            return new PageImpl<>(List.of(), request, MAX_SUPPLIER_RESULTS);
+        }
+        if (!supplierSearchIndex.isReady()) {
+            Pageable sorted = PageRequest.of(page, size, Sort.by("name", "id"));
+            Page<Supplier> result = (q == null || q.isBlank())
+                    ? supplierRepository.findAll(sorted)
+                    : supplierRepository.findByNameContainingIgnoreCaseOrProductNameContainingIgnoreCase(q, q, sorted);
+            return new PageImpl<>(result.getContent(), request, Math.min(result.getTotalElements(), MAX_SUPPLIER_RESULTS));
+        }
+        List<SupplierSearchIndex.Hit> hits = supplierSearchIndex.search(q, MAX_SUPPLIER_RESULTS);
+        int from = (int) Math.min(request.getOffset(), hits.size());
+        int to = Math.min(from + size, hits.size());
+        List<Long> ids = new ArrayList<>(to - from);
+        for (SupplierSearchIndex.Hit hit : hits.subList(from, to)) {
+            ids.add(hit.id());
+        }
+        return new PageImpl<>(suppliersInOrder(ids), request, hits.size());
+    }
+
+    /**
+     * 按主键批量加载供应商并保持给定顺序，已删除的主键跳过。
+     */
+    private List<Supplier> suppliersInOrder(List<Long> ids) {
+        Map<Long, Supplier> byId = new HashMap<>();
+        for (Supplier s : supplierRepository.findAllById(ids)) {
+            byId.put(s.getId(), s);
+        }
+        List<Supplier> content = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            Supplier s = byId.get(id);
+            if (s != null) content.add(s);
+        }
+        return content;
     }
 
     @Transactional
@@ -105,6 +207,10 @@ public class PurchaseService {
         return orderRepository.findByStatus(PurchaseStatus.PENDING);
     }
 
+    /**
+     * 审核采购单。通知供应商的邮件与交易草稿都写入事务发件箱，提交后由后台投递，
+     * 审核事务不等待 SMTP；因此返回结果中的草稿 ID 为空，草稿生成后通过 NEW_TRANSACTION_DRAFT 通知。
+     */
     @Transactional
     public org.example.accounting.dto.PurchaseDtos.ReviewResult reviewOrder(Long id, boolean approved, String reason){
         PurchaseOrder o = orderRepository.findById(id).orElseThrow(() -> new RuntimeException("Order not found"));
@@ -119,7 +225,7 @@ public class PurchaseService {
             if(s != null && s.getEmail() != null && !s.getEmail().isBlank()){
                 String subject = "采购单通知 - 订单 " + o.getId();
                 String body = "尊敬的 " + s.getName() + "，\\n我们已通过采购单，请准备发货。商品：" + o.getProductName() + " 数量：" + o.getQuantity();
-                try{ emailService.sendEmail(s.getEmail(), subject, body); }catch(Exception ignored){ }
+                outboxService.enqueueEmail(s.getEmail(), subject, body);
             }
         } else {
             o.setStatus(PurchaseStatus.REJECTED);
@@ -137,23 +243,102 @@ public class PurchaseService {
         audit.setCreatedAt(LocalDateTime.now());
         auditRepository.save(audit);
 
-        Long draftTxnId = null;
-        // 如果审批通过，自动生成一笔交易草稿，交给管理员在草稿箱中补充科目
+        // 如果审批通过，自动生成一笔交易草稿，交给管理员在草稿箱中补充科目（提交后异步生成，失败会重试）
         if (approved) {
-            try {
-                var draft = transactionDraftService.createDraftFromPurchase(saved);
-                if (draft != null) draftTxnId = draft.getId();
-            } catch (Exception ignored) {
-                // 生成草稿失败不影响审批主流程
-            }
+            outboxService.enqueue(OutboxService.PURCHASE_DRAFT, java.util.Map.of("purchaseOrderId", saved.getId()));
         }
 
         org.example.accounting.dto.PurchaseDtos.ReviewResult result = new org.example.accounting.dto.PurchaseDtos.ReviewResult();
         result.setOrder(saved);
-        result.setDraftTransactionId(draftTxnId);
         return result;
     }
 
+    /**
+     * 批量审核采购单（一个事务）：锁定仍待审核的采购单后一条 UPDATE 写入审核结果，审核记录一次批量插入；
+     * 审批通过时按供应商合并为每个供应商一封邮件，并以一条发件箱消息批量生成交易草稿。
+     * 不存在或已被审核的采购单跳过并在结果中返回。
+     */
+    @Transactional
+    public BatchReviewResult reviewOrders(List<Long> orderIds, boolean approved, String reason) {
+        Set<Long> ids = new LinkedHashSet<>();
+        if (orderIds != null) {
+            for (Long id : orderIds) {
+                if (id != null) ids.add(id);
+            }
+        }
+        if (ids.isEmpty()) {
+            throw new BusinessException("请选择要审核的采购单");
+        }
+        if (ids.size() > MAX_BATCH_REVIEW) {
+            throw new BusinessException("一次最多审核 " + MAX_BATCH_REVIEW + " 个采购单");
+        }
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        String reviewer = auth != null ? auth.getName() : "system";
+        LocalDateTime now = LocalDateTime.now();
+
+        List<PurchaseOrder> pending = orderRepository.findByIdInAndStatusForUpdate(ids, PurchaseStatus.PENDING);
+        List<Long> reviewedIds = new ArrayList<>(pending.size());
+        for (PurchaseOrder o : pending) {
+            reviewedIds.add(o.getId());
+        }
+        if (!reviewedIds.isEmpty()) {
+            orderRepository.updateReview(reviewedIds, approved ? PurchaseStatus.APPROVED : PurchaseStatus.REJECTED,
+                    reviewer, now, approved ? null : reason);
+            List<PurchaseOrderAudit> audits = new ArrayList<>(reviewedIds.size());
+            for (Long id : reviewedIds) {
+                PurchaseOrderAudit audit = new PurchaseOrderAudit();
+                audit.setOrderId(id);
+                audit.setAction(approved ? "APPROVED" : "REJECTED");
+                audit.setActor(reviewer);
+                audit.setComment(approved ? "Approved" : reason);
+                audit.setCreatedAt(now);
+                audits.add(audit);
+            }
+            auditRepository.batchInsert(audits);
+            if (approved) {
+                notifySuppliers(pending);
+                outboxService.enqueue(OutboxService.PURCHASE_DRAFT, Map.of("purchaseOrderIds", reviewedIds));
+            }
+        }
+
+        List<Long> skippedIds = new ArrayList<>(ids);
+        skippedIds.removeAll(new HashSet<>(reviewedIds));
+        BatchReviewResult result = new BatchReviewResult();
+        result.setReviewedIds(reviewedIds);
+        result.setSkippedIds(skippedIds);
+        return result;
+    }
+
+    /**
+     * 每个供应商一封邮件，列出本次通过的全部采购单。
+     */
+    private void notifySuppliers(List<PurchaseOrder> approvedOrders) {
+        Map<Long, List<PurchaseOrder>> bySupplier = new LinkedHashMap<>();
+        for (PurchaseOrder o : approvedOrders) {
+            if (o.getSupplierId() != null) {
+                bySupplier.computeIfAbsent(o.getSupplierId(), k -> new ArrayList<>()).add(o);
+            }
+        }
+        if (bySupplier.isEmpty()) {
+            return;
+        }
+        for (Supplier s : supplierRepository.findAllById(bySupplier.keySet())) {
+            if (s.getEmail() == null || s.getEmail().isBlank()) continue;
+            List<PurchaseOrder> orders = bySupplier.get(s.getId());
+            String subject = orders.size() == 1
+                    ? "采购单通知 - 订单 " + orders.get(0).getId()
+                    : "采购单通知 - 共 " + orders.size() + " 个订单";
+            StringBuilder body = new StringBuilder("尊敬的 ").append(s.getName())
+                    .append("，\n我们已通过以下采购单，请准备发货：");
+            for (PurchaseOrder o : orders) {
+                body.append("\n订单 ").append(o.getId())
+                        .append(" 商品：").append(o.getProductName())
+                        .append(" 数量：").append(o.getQuantity());
+            }
+            outboxService.enqueueEmail(s.getEmail(), subject, body.toString());
+        }
+    }
+
     public java.util.List<PurchaseOrderAudit> listAudits(Long orderId){
         return auditRepository.findByOrderIdOrderByCreatedAtDesc(orderId);
     }
@@ -161,6 +346,59 @@ public class PurchaseService {
     public java.util.List<PurchaseOrder> listAllOrders(){
         return orderRepository.findAll();
     }
+
+    /**
+     * 采购单列表（offset 分页），按创建时间倒序。
+     *
+     * @param createdBy 只看某人提交的采购单，为空不过滤
+     */
+    @Transactional(readOnly = true)
+    public Page<PurchaseOrder> pageOrders(String createdBy, OrderQuery query, Pageable pageable) {
+        OrderQuery q = query != null ? query : new OrderQuery();
+        int page = pageable.isPaged() ? pageable.getPageNumber() : 0;
+        int size = pageable.isPaged() ? clampOrderPageSize(pageable.getPageSize()) : DEFAULT_ORDER_PAGE_SIZE;
+        return orderRepository.search(createdBy, q.getStatus(), q.getSupplierId(), fromTime(q), toTime(q),
+                PageRequest.of(page, size));
+    }
+
+    /**
+     * 采购单列表（键集分页）：游标沿用交易列表的 {@link TransactionCursor} 编码，位置为 (createdAt, id)。
+     */
+    @Transactional(readOnly = true)
+    public CursorSlice<PurchaseOrder> sliceOrders(String createdBy, OrderQuery query, String after, int size) {
+        OrderQuery q = query != null ? query : new OrderQuery();
+        TransactionCursor cursor = TransactionCursor.decode(after);
+        int pageSize = clampOrderPageSize(size);
+        Slice<PurchaseOrder> slice = orderRepository.searchSliceAfter(createdBy, q.getStatus(), q.getSupplierId(),
+                fromTime(q), toTime(q), cursor != null ? cursor.getTradeDate() : null,
+                cursor != null ? cursor.getId() : null, PageRequest.of(0, pageSize));
+        List<PurchaseOrder> rows = slice.getContent();
+        CursorSlice<PurchaseOrder> result = new CursorSlice<>();
+        result.setContent(rows);
+        result.setSize(rows.size());
+        result.setHasNext(slice.hasNext());
+        if (slice.hasNext() && !rows.isEmpty()) {
+            PurchaseOrder last = rows.get(rows.size() - 1);
+            result.setNextCursor(new TransactionCursor(last.getCreatedAt(), last.getId()).encode());
+        }
+        return result;
+    }
+
+    private static LocalDateTime fromTime(OrderQuery q) {
+        return q.getFrom() != null ? q.getFrom().atStartOfDay() : null;
+    }
+
+    private static LocalDateTime toTime(OrderQuery q) {
+        if (q.getFrom() != null && q.getTo() != null && q.getFrom().isAfter(q.getTo())) {
+            throw new BusinessException("开始日期不能晚于结束日期");
+        }
+        return q.getTo() != null ? q.getTo().plusDays(1).atStartOfDay() : null;
+    }
+
+    private static int clampOrderPageSize(int size) {
+        if (size <= 0) return DEFAULT_ORDER_PAGE_SIZE;
+        return Math.min(size, MAX_ORDER_PAGE_SIZE);
+    }
 }
 
 
@@ -0,0 +1,58 @@
+package org.example.accounting.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+
+/**
+ * 附件存储后端 SPI。
+ * 按键（相对路径，如 {@code ab/cd/abcd...} 或旧的平铺文件名）存取不可变对象；
+ * 命名、去重、引用计数与压缩由 {@link FileStorageService} 负责，后端只负责字节的存放位置。
+ * 通过 {@code file.storage.backend} 选择实现：{@code local}（默认，本地文件系统）、
+ * {@code s3}（S3 兼容对象存储）或 {@code tiered}（近期文件在本地，过期后后台迁移到对象存储）。
+ */
+public interface StorageBackend {
+
+    /**
+     * 把本地文件写入后端。本地后端直接移动源文件，远程后端上传后保留源文件，调用方负责清理。
+     * 键已存在时不覆盖（相同键即相同内容）。
+     *
+     * @return true 表示本次写入了内容；false 表示键已存在
+     */
+    boolean put(String key, Path source) throws IOException;
+
+    /**
+     * 读取对象全部内容。
+     *
+     * @throws java.nio.file.NoSuchFileException 对象不存在
+     */
+    InputStream open(String key) throws IOException;
+
+    /**
+     * 从 start 开始读取对象；返回的流至少包含 count 字节（可能更多），调用方只读取所需的字节。
+     *
+     * @throws java.nio.file.NoSuchFileException 对象不存在
+     */
+    InputStream open(String key, long start, long count) throws IOException;
+
+    /**
+     * 对象大小（字节）；不存在时返回 -1。
+     */
+    long size(String key) throws IOException;
+
+    default boolean exists(String key) throws IOException {
+        return size(key) >= 0;
+    }
+
+    /**
+     * 删除对象；不存在时忽略。
+     */
+    void delete(String key) throws IOException;
+
+    /**
+     * 对象在本地磁盘上的路径（可交给 sendfile 零拷贝写出）；不在本地时返回 null。
+     */
+    default Path localPath(String key) {
+        return null;
+    }
+}
@@ -0,0 +1,269 @@
+package org.example.accounting.service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import org.example.accounting.domain.Supplier;
+import org.example.accounting.repository.SupplierRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Service;
+
+/**
+ * 供应商自动补全的内存 n-gram 索引。
+ * 对供应商名称与商品名称同时按单字与二元字符组（bigram）建立倒排表，中文与英文数字混排均可匹配：
+ * 单字查询（输入第一个字时）走单字倒排表，更长的查询取各 bigram 倒排表的交集，再做子串校验与打分。
+ * 排序偏向“前缀命中”：名称前缀 > 名称中词首 > 名称包含 > 商品前缀 > 商品包含，同分时名称短者在前。
+ * 索引在应用启动后从数据库后台重建，之后由 {@link PurchaseService} 在新增供应商提交后增量维护；
+ * 重建完成前 {@link #isReady()} 为 false，调用方应回退到数据库查询。
+ */
+@Service
+public class SupplierSearchIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(SupplierSearchIndex.class);
+
+    private static final int REBUILD_BATCH = 500;
+
+    private static final int SCORE_NAME_PREFIX = 8;
+    private static final int SCORE_NAME_WORD = 6;
+    private static final int SCORE_NAME = 4;
+    private static final int SCORE_PRODUCT_PREFIX = 2;
+    private static final int SCORE_PRODUCT = 1;
+
+    private final SupplierRepository supplierRepository;
+
+    /**
+     * 单字或 bigram -> 包含它的供应商 ID 集合。
+     */
+    private final ConcurrentHashMap<String, Set<Long>> postings = new ConcurrentHashMap<>();
+    /**
+     * 供应商 ID -> 已索引文档（规范化后的字段文本）。
+     */
+    private final ConcurrentHashMap<Long, Doc> docs = new ConcurrentHashMap<>();
+
+    private volatile boolean ready;
+
+    public SupplierSearchIndex(SupplierRepository supplierRepository) {
+        this.supplierRepository = supplierRepository;
+    }
+
+    /**
+     * 检索命中结果。
+     */
+    public record Hit(Long id, String name, int score) {
+    }
+
+    private record Doc(Long id, String name, String productName) {
+
+        List<String> fields() {
+            return List.of(name, productName);
+        }
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * 新增或覆盖一个供应商的索引。
+     */
+    public void index(Supplier supplier) {
+        put(toDoc(supplier), true);
+    }
+
+    public void remove(Long id) {
+        synchronized (this) {
+            Doc old = docs.remove(id);
+            if (old != null) {
+                unlink(old);
+            }
+        }
+    }
+
+    /**
+     * 检索供应商，按得分降序、名称长度升序、名称、ID 返回，最多 limit 条；查询词为空时按名称返回全部（同样受 limit 限制）。
+     */
+    public List<Hit> search(String q, int limit) {
+        String query = normalize(q);
+        List<Hit> hits = new ArrayList<>();
+        if (query.isEmpty()) {
+            for (Doc doc : docs.values()) {
+                hits.add(new Hit(doc.id(), doc.name(), 0));
+            }
+        } else {
+            Set<String> queryGrams = grams(query, 2);
+            if (queryGrams.isEmpty()) {
+                queryGrams = grams(query, 1);
+            }
+            // 从最短的倒排表开始求交集
+            List<Set<Long>> lists = new ArrayList<>(queryGrams.size());
+            for (String gram : queryGrams) {
+                Set<Long> ids = postings.get(gram);
+                if (ids == null || ids.isEmpty()) {
+                    return List.of();
+                }
+                lists.add(ids);
+            }
+            if (lists.isEmpty()) {
+                return List.of();
+            }
+            lists.sort(Comparator.comparingInt(Set::size));
+            for (Long id : lists.get(0)) {
+                boolean inAll = true;
+                for (int i = 1; i < lists.size() && inAll; i++) {
+                    inAll = lists.get(i).contains(id);
+                }
+                Doc doc = inAll ? docs.get(id) : null;
+                if (doc == null) continue;
+                int score = score(doc, query);
+                if (score > 0) {
+                    hits.add(new Hit(doc.id(), doc.name(), score));
+                }
+            }
+        }
+        if (query.isEmpty()) {
+            // 与数据库回退路径的 Sort.by("name", "id") 一致
+            hits.sort(Comparator.comparing(Hit::name).thenComparing(Hit::id));
+        } else {
+            hits.sort(Comparator.comparingInt(Hit::score).reversed()
+                    .thenComparingInt((Hit h) -> h.name().length())
+                    .thenComparing(Hit::name)
+                    .thenComparing(Hit::id));
+        }
+        return hits.size() > limit ? new ArrayList<>(hits.subList(0, limit)) : hits;
+    }
+
+    /**
+     * 应用启动完成后在后台从数据库重建索引，不阻塞启动。
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildInBackground() {
+        Thread t = new Thread(this::rebuild, "supplier-search-index-rebuild");
+        t.setDaemon(true);
+        t.start();
+    }
+
+    /**
+     * 分批扫描全部供应商重建索引。重建期间的增量更新优先：已存在的文档不会被旧数据覆盖。
+     */
+    public void rebuild() {
+        long start = System.currentTimeMillis();
+        int count = 0;
+        try {
+            int page = 0;
+            Page<Supplier> batch;
+            do {
+                batch = supplierRepository.findAll(PageRequest.of(page++, REBUILD_BATCH, Sort.by("id")));
+                for (Supplier s : batch.getContent()) {
+                    put(toDoc(s), false);
+                    count++;
+                }
+            } while (batch.hasNext());
+            ready = true;
+            log.info("供应商检索索引重建完成：{} 个供应商，{} 个索引项，耗时 {} ms",
+                    count, postings.size(), System.currentTimeMillis() - start);
+        } catch (Exception ex) {
+            log.warn("供应商检索索引重建失败，检索将回退到数据库查询", ex);
+        }
+    }
+
+    private void put(Doc doc, boolean overwrite) {
+        synchronized (this) {
+            Doc old = docs.get(doc.id());
+            if (old != null) {
+                if (!overwrite) return;
+                unlink(old);
+            }
+            docs.put(doc.id(), doc);
+            for (String gram : keys(doc)) {
+                postings.computeIfAbsent(gram, k -> ConcurrentHashMap.newKeySet()).add(doc.id());
+            }
+        }
+    }
+
+    private void unlink(Doc doc) {
+        for (String gram : keys(doc)) {
+            Set<Long> ids = postings.get(gram);
+            if (ids != null) {
+                ids.remove(doc.id());
+                if (ids.isEmpty()) postings.remove(gram);
+            }
+        }
+    }
+
+    private static Set<String> keys(Doc doc) {
+        Set<String> keys = new LinkedHashSet<>();
+        for (String field : doc.fields()) {
+            keys.addAll(grams(field, 1));
+            keys.addAll(grams(field, 2));
+        }
+        return keys;
+    }
+
+    private static Doc toDoc(Supplier s) {
+        return new Doc(s.getId(), normalize(s.getName()), normalize(s.getProductName()));
+    }
+
+    /**
+     * 名称与商品名称的命中得分之和；两个字段都不含查询词时为 0（n-gram 误命中）。
+     */
+    private static int score(Doc doc, String query) {
+        int score = 0;
+        if (doc.name().startsWith(query)) score += SCORE_NAME_PREFIX;
+        else if (startsWord(doc.name(), query)) score += SCORE_NAME_WORD;
+        else if (doc.name().contains(query)) score += SCORE_NAME;
+        if (doc.productName().startsWith(query)) score += SCORE_PRODUCT_PREFIX;
+        else if (doc.productName().contains(query)) score += SCORE_PRODUCT;
+        return score;
+    }
+
+    /**
+     * 查询词是否出现在某个词首（前一个字符是空白或标点），用于 "Acme Steel" 输入 "ste" 的场景。
+     */
+    private static boolean startsWord(String text, String query) {
+        int from = 0;
+        int i;
+        while ((i = text.indexOf(query, from)) > 0) {
+            if (!Character.isLetterOrDigit(text.codePointBefore(i))) {
+                return true;
+            }
+            from = i + 1;
+        }
+        return false;
+    }
+
+    static String normalize(String s) {
+        if (s == null) return "";
+        return s.trim().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * 按码点切分长度为 n 的字符组，跳过含空白的组合。
+     */
+    static Set<String> grams(String text, int n) {
+        Set<String> result = new LinkedHashSet<>();
+        int[] cps = text.codePoints().toArray();
+        for (int i = 0; i + n <= cps.length; i++) {
+            boolean blank = false;
+            for (int j = i; j < i + n; j++) {
+                if (Character.isWhitespace(cps[j])) {
+                    blank = true;
+                    break;
+                }
+            }
+            if (!blank) {
+                result.add(new String(cps, i, n));
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,68 @@
+package org.example.accounting.service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import org.example.accounting.domain.Transaction;
+import org.example.accounting.exception.BusinessException;
+
+/**
+ * 交易列表的键集分页游标。
+ * 列表统一按 (tradeDate desc, id desc) 排序，游标记录上一页最后一行的位置，
+ * 下一页只需查询“排在该位置之后”的记录，避免 offset 越大越慢的问题。
+ * 对外以 Base64URL 编码的不透明字符串传递（原文为 {@code tradeDate,id}）。
+ */
+public final class TransactionCursor {
+
+    private final LocalDateTime tradeDate;
+    private final Long id;
+
+    public TransactionCursor(LocalDateTime tradeDate, Long id) {
+        this.tradeDate = tradeDate;
+        this.id = id;
+    }
+
+    /**
+     * 以某笔交易作为游标位置。
+     */
+    public static TransactionCursor of(Transaction transaction) {
+        return new TransactionCursor(transaction.getTradeDate(), transaction.getId());
+    }
+
+    /**
+     * 解析客户端传回的游标；为空表示从第一页开始，返回 null。
+     */
+    public static TransactionCursor decode(String token) {
+        if (token == null || token.isBlank()) {
+            return null;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token.trim()), StandardCharsets.UTF_8);
+            int comma = raw.lastIndexOf(',');
+            if (comma <= 0) {
+                throw new BusinessException("非法分页游标: " + token);
+            }
+            return new TransactionCursor(LocalDateTime.parse(raw.substring(0, comma)),
+                    Long.valueOf(raw.substring(comma + 1)));
+        } catch (IllegalArgumentException | DateTimeParseException ex) {
+            throw new BusinessException("非法分页游标: " + token);
+        }
+    }
+
+    /**
+     * 编码为不透明字符串。
+     */
+    public String encode() {
+        String raw = tradeDate + "," + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public LocalDateTime getTradeDate() {
+        return tradeDate;
+    }
+
+    public Long getId() {
+        return id;
+    }
+}
@@ -5,11 +5,13 @@ import org.example.accounting.dto.TransactionDtos.CreateTransactionRequest;
 import org.example.accounting.dto.TransactionDtos.TransactionResponse;
 import org.example.accounting.domain.PurchaseOrder;
 import org.example.accounting.repository.TransactionDraftRepository;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -20,15 +22,49 @@ public class TransactionDraftService {
 
     private final TransactionDraftRepository draftRepository;
     private final org.example.accounting.service.TransactionService transactionService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final PurchaseAccountSuggester accountSuggester;
 
     public TransactionDraftService(TransactionDraftRepository draftRepository,
-                                   org.example.accounting.service.TransactionService transactionService) {
+                                   org.example.accounting.service.TransactionService transactionService,
+                                   ApplicationEventPublisher eventPublisher,
+                                   PurchaseAccountSuggester accountSuggester) {
         this.draftRepository = draftRepository;
         this.transactionService = transactionService;
+        this.eventPublisher = eventPublisher;
+        this.accountSuggester = accountSuggester;
     }
 
     @Transactional
     public TransactionDraft createDraftFromPurchase(PurchaseOrder purchaseOrder) {
+        return createDraftsFromPurchases(List.of(purchaseOrder)).get(0);
+    }
+
+    /**
+     * 批量生成草稿：建议科目每批只解析一次，草稿一次 saveAll；
+     * 每个草稿发布一条事件，提交后由 NotificationCoalescer 合并为一条推送。
+     */
+    @Transactional
+    public List<TransactionDraft> createDraftsFromPurchases(List<PurchaseOrder> purchaseOrders) {
+        if (purchaseOrders.isEmpty()) {
+            return List.of();
+        }
+        PurchaseAccountSuggester.Suggestion suggested = accountSuggester.suggest();
+        List<TransactionDraft> drafts = new ArrayList<>(purchaseOrders.size());
+        for (PurchaseOrder order : purchaseOrders) {
+            TransactionDraft d = toDraft(order);
+            d.setSuggestedDebitAccountId(suggested.debitId());
+            d.setSuggestedCreditAccountId(suggested.creditId());
+            drafts.add(d);
+        }
+        List<TransactionDraft> saved = draftRepository.saveAll(drafts);
+        for (TransactionDraft d : saved) {
+            publishNewDraft(d);
+        }
+        return saved;
+    }
+
+    private TransactionDraft toDraft(PurchaseOrder purchaseOrder) {
         BigDecimal total = BigDecimal.ZERO;
         if (purchaseOrder.getUnitPrice() != null && purchaseOrder.getQuantity() != null) {
             total = purchaseOrder.getUnitPrice().multiply(BigDecimal.valueOf(purchaseOrder.getQuantity()));
@@ -36,7 +72,7 @@ public class TransactionDraftService {
         String description = "采购单 #" + purchaseOrder.getId() + " - " + purchaseOrder.getProductName()
                 + " 数量:" + purchaseOrder.getQuantity() + " 总额:" + total;
 
-        TransactionDraft d = TransactionDraft.builder()
+        return TransactionDraft.builder()
                 .purchaseOrderId(purchaseOrder.getId())
                 .tradeDate(LocalDateTime.now())
                 .description(description)
@@ -44,20 +80,15 @@ public class TransactionDraftService {
                 .createdBy(purchaseOrder.getReviewedBy() != null ? purchaseOrder.getReviewedBy() : "system")
                 .createdAt(LocalDateTime.now())
                 .build();
-        TransactionDraft saved = draftRepository.save(d);
-
-        // notify admins/global
-        try {
-            java.util.Map<String, Object> payload = new java.util.HashMap<>();
-            payload.put("draftId", saved.getId());
-            payload.put("purchaseOrderId", saved.getPurchaseOrderId());
-            payload.put("description", saved.getDescription());
-            // Use NotificationService if available via Spring context
-            org.example.accounting.service.NotificationService notif = org.springframework.web.context.ContextLoader.getCurrentWebApplicationContext().getBean(org.example.accounting.service.NotificationService.class);
-            if (notif != null) notif.notifyAllUsers("NEW_TRANSACTION_DRAFT", payload);
-        } catch (Exception ignored) {}
+    }
 
-        return saved;
+    private void publishNewDraft(TransactionDraft saved) {
+        // notify admins/global (published after commit)
+        java.util.Map<String, Object> payload = new java.util.HashMap<>();
+        payload.put("draftId", saved.getId());
+        payload.put("purchaseOrderId", saved.getPurchaseOrderId());
+        payload.put("description", saved.getDescription());
+        eventPublisher.publishEvent(NotificationEvent.broadcast("NEW_TRANSACTION_DRAFT", saved.getId(), payload));
     }
 
     @Transactional(readOnly = true)
@@ -0,0 +1,376 @@
+package org.example.accounting.service;
+
+import jakarta.annotation.PreDestroy;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import org.example.accounting.domain.Transaction;
+import org.example.accounting.repository.SplitRepository;
+import org.example.accounting.repository.TransactionRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Service;
+
+/**
+ * 交易全文检索的内存 n-gram 倒排索引。
+ * 对交易的参考号、描述和分录备注按二元字符组（bigram）建立倒排表，同时适用于中文与英文数字混排文本；
+ * 查询时先取各 bigram 倒排表的交集得到候选，再做子串校验与打分，返回排好序的交易 ID，
+ * 调用方据此按主键加载交易，替代无法走索引的 {@code like '%q%'} 全表扫描。
+ * 索引在应用启动后从数据库后台重建，之后按交易变更序号（changeSeq）定期拉取变更，其他节点的修改也会同步过来；
+ * 本节点的修改另由 {@link TransactionService} 在提交后直接写入，不必等下一次拉取。
+ * 每个文档记录其版本号，旧版本不会覆盖新版本，因此重建、拉取与提交后写入的先后顺序不影响结果。
+ * 重建完成前 {@link #isReady()} 为 false，调用方应回退到数据库查询。
+ */
+@Service
+public class TransactionSearchIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(TransactionSearchIndex.class);
+
+    private static final int GRAM = 2;
+    private static final int REBUILD_BATCH = 500;
+
+    private static final int SCORE_REFERENCE = 3;
+    private static final int SCORE_DESCRIPTION = 2;
+    private static final int SCORE_MEMO = 1;
+
+    private final TransactionRepository transactionRepository;
+    private final SplitRepository splitRepository;
+    private final ChangeSequenceService changeSequenceService;
+    private final long syncMillis;
+    private final ScheduledExecutorService worker = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "txn-search-index");
+        t.setDaemon(true);
+        return t;
+    });
+
+    /**
+     * bigram -> 包含该 bigram 的交易 ID 集合。
+     */
+    private final ConcurrentHashMap<String, Set<Long>> postings = new ConcurrentHashMap<>();
+    /**
+     * 交易 ID -> 已索引文档（规范化后的字段文本与过滤用属性）。
+     */
+    private final ConcurrentHashMap<Long, Doc> docs = new ConcurrentHashMap<>();
+
+    private volatile boolean ready;
+    /**
+     * 已从变更序列同步到的序号，只由索引线程读写。
+     */
+    private long syncedSeq;
+
+    public TransactionSearchIndex(TransactionRepository transactionRepository,
+                                  SplitRepository splitRepository,
+                                  ChangeSequenceService changeSequenceService,
+                                  @Value("${search.index.sync-ms:2000}") long syncMillis) {
+        this.transactionRepository = transactionRepository;
+        this.splitRepository = splitRepository;
+        this.changeSequenceService = changeSequenceService;
+        this.syncMillis = Math.max(100, syncMillis);
+    }
+
+    /**
+     * 检索命中结果。
+     */
+    public record Hit(Long id, LocalDateTime tradeDate, int score) {
+    }
+
+    /**
+     * @param version 交易的 changeSeq，从未变更过的历史交易为 0
+     */
+    private record Doc(Long id, long version, LocalDateTime tradeDate, boolean cleared, String createdBy,
+            String reference, String description, String memo) {
+
+        List<String> fields() {
+            return List.of(reference, description, memo);
+        }
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * 查询词是否可以由索引回答（规范化后至少包含一个完整的 bigram）。
+     */
+    public boolean supports(String q) {
+        return ready && !grams(normalize(q)).isEmpty();
+    }
+
+    /**
+     * 新增或覆盖一笔交易的索引；已索引的版本更新时忽略。
+     *
+     * @param memos 该交易全部分录的备注（可含空值）
+     */
+    public void index(Transaction transaction, Collection<String> memos) {
+        put(toDoc(transaction, memos));
+    }
+
+    /**
+     * 仅更新核对状态（审核通过/驳回时文本不变，无需重建倒排表）。
+     * 文档尚未索引（重建还没扫到）或已有更新版本时忽略，由变更拉取补上。
+     *
+     * @param version 审核写入的 changeSeq
+     */
+    public void updateCleared(Long id, boolean cleared, long version) {
+        synchronized (this) {
+            docs.computeIfPresent(id, (k, d) -> version < d.version() ? d
+                    : new Doc(d.id(), version, d.tradeDate(), cleared, d.createdBy(),
+                            d.reference(), d.description(), d.memo()));
+        }
+    }
+
+    public void remove(Long id) {
+        synchronized (this) {
+            Doc old = docs.remove(id);
+            if (old != null) {
+                unlink(old);
+            }
+        }
+    }
+
+    /**
+     * 检索交易，按得分降序、交易日期倒序、ID 倒序返回。
+     *
+     * @param q         查询词
+     * @param cleared   按核对状态过滤，为空不过滤
+     * @param createdBy 按创建人过滤，为空不过滤
+     */
+    public List<Hit> search(String q, Boolean cleared, String createdBy) {
+        String query = normalize(q);
+        List<Hit> hits = new ArrayList<>();
+        match(query, cleared, createdBy, doc -> hits.add(new Hit(doc.id(), doc.tradeDate(), score(doc, query))));
+        hits.sort(Comparator.comparingInt(Hit::score).reversed()
+                .thenComparing(Hit::tradeDate, Comparator.nullsLast(Comparator.reverseOrder()))
+                .thenComparing(Hit::id, Comparator.reverseOrder()));
+        return hits;
+    }
+
+    /**
+     * 命中数，与 {@link #search} 的结果条数相同，但不打分、不排序。
+     */
+    public int count(String q, Boolean cleared, String createdBy) {
+        int[] count = new int[1];
+        match(normalize(q), cleared, createdBy, doc -> count[0]++);
+        return count[0];
+    }
+
+    /**
+     * 从最短的倒排表开始求交集，通过过滤条件与子串校验的文档交给 sink。
+     */
+    private void match(String query, Boolean cleared, String createdBy, Consumer<Doc> sink) {
+        Set<String> queryGrams = grams(query);
+        if (queryGrams.isEmpty()) {
+            return;
+        }
+        List<Set<Long>> lists = new ArrayList<>(queryGrams.size());
+        for (String gram : queryGrams) {
+            Set<Long> ids = postings.get(gram);
+            if (ids == null || ids.isEmpty()) {
+                return;
+            }
+            lists.add(ids);
+        }
+        lists.sort(Comparator.comparingInt(Set::size));
+        for (Long id : lists.get(0)) {
+            boolean inAll = true;
+            for (int i = 1; i < lists.size() && inAll; i++) {
+                inAll = lists.get(i).contains(id);
+            }
+            Doc doc = inAll ? docs.get(id) : null;
+            if (doc == null) continue;
+            if (cleared != null && doc.cleared() != cleared) continue;
+            if (createdBy != null && !createdBy.equals(doc.createdBy())) continue;
+            if (contains(doc, query)) {
+                sink.accept(doc);
+            }
+        }
+    }
+
+    /**
+     * 应用启动完成后在索引线程上重建索引，不阻塞启动；之后每 sync-ms 拉取一次变更。
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        worker.execute(this::rebuild);
+        worker.scheduleWithFixedDelay(this::sync, syncMillis, syncMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        worker.shutdownNow();
+    }
+
+    /**
+     * 分批扫描全部交易重建索引。扫描前记下当前序号，扫描后补拉这之后的变更，
+     * 扫描期间提交的修改（包括提交后写入时文档还不存在而被忽略的）不会丢失。
+     */
+    void rebuild() {
+        long start = System.currentTimeMillis();
+        int count = 0;
+        try {
+            long from = changeSequenceService.current(ChangeSequenceService.TRANSACTIONS);
+            int page = 0;
+            Page<Transaction> batch;
+            do {
+                batch = transactionRepository.findAll(PageRequest.of(page++, REBUILD_BATCH, Sort.by("id")));
+                putAll(batch.getContent());
+                count += batch.getNumberOfElements();
+            } while (batch.hasNext());
+            syncedSeq = from;
+            catchUp();
+            ready = true;
+            log.info("交易检索索引重建完成：{} 笔交易，{} 个 bigram，耗时 {} ms",
+                    count, postings.size(), System.currentTimeMillis() - start);
+        } catch (Exception ex) {
+            log.warn("交易检索索引重建失败，检索将回退到数据库查询", ex);
+        }
+    }
+
+    private void sync() {
+        if (!ready) {
+            return;
+        }
+        try {
+            catchUp();
+        } catch (Exception ex) {
+            log.warn("交易检索索引同步失败，下次继续", ex);
+        }
+    }
+
+    /**
+     * 拉取 syncedSeq 之后已提交的变更（序号不超过当前值的变更都已提交）。
+     */
+    void catchUp() {
+        long upTo = changeSequenceService.current(ChangeSequenceService.TRANSACTIONS);
+        while (syncedSeq < upTo) {
+            List<Transaction> rows = transactionRepository.findChangedBetween(syncedSeq, upTo,
+                    PageRequest.of(0, REBUILD_BATCH));
+            if (rows.isEmpty()) {
+                syncedSeq = upTo;
+                break;
+            }
+            putAll(rows);
+            syncedSeq = rows.get(rows.size() - 1).getChangeSeq();
+        }
+    }
+
+    private void putAll(List<Transaction> transactions) {
+        if (transactions.isEmpty()) {
+            return;
+        }
+        List<Long> ids = new ArrayList<>(transactions.size());
+        for (Transaction t : transactions) {
+            ids.add(t.getId());
+        }
+        Map<Long, List<String>> memos = new HashMap<>();
+        for (Object[] row : splitRepository.findMemosByTransactionIdIn(ids)) {
+            memos.computeIfAbsent((Long) row[0], k -> new ArrayList<>()).add((String) row[1]);
+        }
+        for (Transaction t : transactions) {
+            put(toDoc(t, memos.getOrDefault(t.getId(), List.of())));
+        }
+    }
+
+    private void put(Doc doc) {
+        synchronized (this) {
+            Doc old = docs.get(doc.id());
+            if (old != null) {
+                if (doc.version() < old.version()) return;
+                unlink(old);
+            }
+            docs.put(doc.id(), doc);
+            for (String field : doc.fields()) {
+                for (String gram : grams(field)) {
+                    postings.computeIfAbsent(gram, k -> ConcurrentHashMap.newKeySet()).add(doc.id());
+                }
+            }
+        }
+    }
+
+    private void unlink(Doc doc) {
+        for (String field : doc.fields()) {
+            for (String gram : grams(field)) {
+                Set<Long> ids = postings.get(gram);
+                if (ids != null) {
+                    ids.remove(doc.id());
+                    if (ids.isEmpty()) postings.remove(gram);
+                }
+            }
+        }
+    }
+
+    private static Doc toDoc(Transaction t, Collection<String> memos) {
+        StringBuilder memo = new StringBuilder();
+        if (memos != null) {
+            for (String m : memos) {
+                if (m == null || m.isBlank()) continue;
+                if (memo.length() > 0) memo.append('\n');
+                memo.append(m);
+            }
+        }
+        return new Doc(t.getId(), t.getChangeSeq() != null ? t.getChangeSeq() : 0L, t.getTradeDate(), Boolean.TRUE.equals(t.getCleared()), t.getCreatedBy(),
+                normalize(t.getReference()), normalize(t.getDescription()), normalize(memo.toString()));
+    }
+
+    /**
+     * 是否有字段包含查询词（排除 bigram 都命中但不连续的误命中）。
+     */
+    private static boolean contains(Doc doc, String query) {
+        return doc.reference().contains(query) || doc.description().contains(query) || doc.memo().contains(query);
+    }
+
+    /**
+     * 子串命中的字段加权求和：参考号 > 描述 > 备注。
+     */
+    private static int score(Doc doc, String query) {
+        int score = 0;
+        if (doc.reference().contains(query)) score += SCORE_REFERENCE;
+        if (doc.description().contains(query)) score += SCORE_DESCRIPTION;
+        if (doc.memo().contains(query)) score += SCORE_MEMO;
+        return score;
+    }
+
+    static String normalize(String s) {
+        if (s == null) return "";
+        return s.trim().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * 按码点切分 bigram，跳过含空白的组合（中文无空格，英文单词间的空格不参与匹配）。
+     */
+    static Set<String> grams(String text) {
+        Set<String> result = new LinkedHashSet<>();
+        int[] cps = text.codePoints().toArray();
+        for (int i = 0; i + GRAM <= cps.length; i++) {
+            boolean blank = false;
+            for (int j = i; j < i + GRAM; j++) {
+                if (Character.isWhitespace(cps[j])) {
+                    blank = true;
+                    break;
+                }
+            }
+            if (!blank) {
+                result.add(new String(cps, i, GRAM));
+            }
+        }
+        return result;
+    }
+}
@@ -2,30 +2,45 @@ package org.example.accounting.service;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import org.example.accounting.domain.Account;
 import org.example.accounting.domain.AccountType;
 import org.example.accounting.domain.DebitCredit;
 import org.example.accounting.domain.Split;
 import org.example.accounting.domain.Transaction;
+import org.example.accounting.dto.TransactionDtos.ChangeFeed;
 import org.example.accounting.dto.TransactionDtos.CreateTransactionRequest;
+import org.example.accounting.dto.TransactionDtos.CursorSlice;
 import org.example.accounting.dto.TransactionDtos.SplitCreateRequest;
+import org.example.accounting.dto.TransactionDtos.TransactionQueryRequest;
 import org.example.accounting.dto.TransactionDtos.TransactionResponse;
+import org.example.accounting.dto.TransactionDtos.TransactionSummaryResponse;
 import org.example.accounting.exception.BusinessException;
 import org.example.accounting.mapper.TransactionMapper;
 import org.example.accounting.repository.AccountRepository;
 import org.example.accounting.repository.SplitRepository;
+import org.example.accounting.repository.TransactionQueryBuilder;
 import org.example.accounting.repository.TransactionAttachmentRepository;
 import org.example.accounting.repository.TransactionRepository;
 import org.example.accounting.service.impl.BalanceCalculatorImpl;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 /**
  * 交易服务层
@@ -42,7 +57,21 @@ public class TransactionService {
     private final org.example.accounting.repository.CommodityRepository commodityRepository;
     private final BalanceCalculatorImpl balanceCalculator;
     private final TransactionAttachmentRepository attachmentRepository;
-    private final org.example.accounting.service.NotificationService notificationService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionSearchIndex searchIndex;
+    private final TransactionQueryBuilder transactionQueryBuilder;
+    private final ChangeSequenceService changeSequenceService;
+    private final PurchaseAccountSuggester accountSuggester;
+
+    private static final int DEFAULT_SLICE_SIZE = 50;
+    private static final int MAX_SLICE_SIZE = 200;
+    private static final long COUNT_ESTIMATE_TTL_MILLIS = 30_000L;
+    private static final int MAX_COUNT_ESTIMATES = 1024;
+
+    /**
+     * 近似总数缓存：key = 查询条件，value = [总数, 过期时间戳]。
+     */
+    private final ConcurrentMap<String, long[]> countEstimates = new ConcurrentHashMap<>();
 
     public TransactionService(TransactionRepository transactionRepository,
             SplitRepository splitRepository,
@@ -52,7 +81,11 @@ public class TransactionService {
             TransactionValidationService validationService,
             BalanceCalculatorImpl balanceCalculator,
             TransactionAttachmentRepository attachmentRepository,
-            org.example.accounting.service.NotificationService notificationService) {
+            ApplicationEventPublisher eventPublisher,
+            TransactionSearchIndex searchIndex,
+            TransactionQueryBuilder transactionQueryBuilder,
+            ChangeSequenceService changeSequenceService,
+            PurchaseAccountSuggester accountSuggester) {
         this.transactionRepository = transactionRepository;
         this.splitRepository = splitRepository;
         this.accountRepository = accountRepository;
@@ -61,7 +94,11 @@ public class TransactionService {
         this.validationService = validationService;
         this.balanceCalculator = balanceCalculator;
         this.attachmentRepository = attachmentRepository;
-        this.notificationService = notificationService;
+        this.eventPublisher = eventPublisher;
+        this.searchIndex = searchIndex;
+        this.transactionQueryBuilder = transactionQueryBuilder;
+        this.changeSequenceService = changeSequenceService;
+        this.accountSuggester = accountSuggester;
     }
 
     /**
@@ -89,27 +126,17 @@ public class TransactionService {
                 .createdBy(createdBy)
                 .build();
 
-        // 尝试查找建议科目：优先费用类借方与负债类（应付）贷方
-        List<Account> allAccounts = accountRepository.findAll();
-        Account debitAccount = allAccounts.stream()
-                .filter(a -> Boolean.TRUE.equals(a.getActive()) && a.getType() == org.example.accounting.domain.AccountType.EXPENSE)
-                .findFirst().orElse(null);
-        Account creditAccount = allAccounts.stream()
-                .filter(a -> Boolean.TRUE.equals(a.getActive()) && a.getType() == org.example.accounting.domain.AccountType.LIABILITY)
-                .findFirst().orElse(null);
-
-        // 若未找到上述类型，则使用前两个可用账户作为建议（保证分录存在，便于前端修改）
-        List<Account> activeAccounts = allAccounts.stream().filter(a -> Boolean.TRUE.equals(a.getActive())).toList();
-        if (debitAccount == null || creditAccount == null) {
-            if (activeAccounts.size() >= 2) {
-                if (debitAccount == null) debitAccount = activeAccounts.get(0);
-                if (creditAccount == null) creditAccount = activeAccounts.get(1);
-            } else {
-                // 无足够账户则仅保存交易主体（不包含分录），管理员需要在前端补充分录
-                Transaction savedOnly = transactionRepository.save(txn);
-                return transactionMapper.toTransactionResponse(savedOnly);
-            }
+        // 建议科目与 TransactionDraftService 共用同一规则：优先费用类借方与负债类（应付）贷方，否则取前两个启用账户
+        PurchaseAccountSuggester.Suggestion suggested = accountSuggester.suggest();
+        if (suggested.isEmpty()) {
+            // 无足够账户则仅保存交易主体（不包含分录），管理员需要在前端补充分录
+            txn.setChangeSeq(changeSequenceService.next(ChangeSequenceService.TRANSACTIONS));
+            Transaction savedOnly = transactionRepository.save(txn);
+            reindexAfterCommit(savedOnly, List.of());
+            return transactionMapper.toTransactionResponse(savedOnly);
         }
+        Account debitAccount = suggested.debit();
+        Account creditAccount = suggested.credit();
 
         Split debitSplit = Split.builder()
                 .transaction(txn)
@@ -130,16 +157,16 @@ public class TransactionService {
                 .build();
 
         txn.setSplits(List.of(debitSplit, creditSplit));
+        txn.setChangeSeq(changeSequenceService.next(ChangeSequenceService.TRANSACTIONS));
 
         Transaction saved = transactionRepository.save(txn);
-        // 通知所有在线用户（前端可监听该事件并弹出或刷新待核对交易列表）
-        try {
-            java.util.Map<String, Object> payload = new java.util.HashMap<>();
-            payload.put("transactionId", saved.getId());
-            payload.put("reference", saved.getReference());
-            payload.put("description", saved.getDescription());
-            notificationService.notifyAllUsers("NEW_DRAFT_TRANSACTION", payload);
-        } catch (Exception ignored) { }
+        reindexAfterCommit(saved, List.of(debitSplit.getMemo(), creditSplit.getMemo()));
+        // 通知所有在线用户（前端可监听该事件并弹出或刷新待核对交易列表）；提交后合并推送
+        java.util.Map<String, Object> payload = new java.util.HashMap<>();
+        payload.put("transactionId", saved.getId());
+        payload.put("reference", saved.getReference());
+        payload.put("description", saved.getDescription());
+        eventPublisher.publishEvent(NotificationEvent.broadcast("NEW_DRAFT_TRANSACTION", saved.getId(), payload));
         return transactionMapper.toTransactionResponse(saved);
     }
 
@@ -253,12 +280,17 @@ public class TransactionService {
         // 刷新所有更新，确保立即提交到数据库
         accountRepository.flush();
 
+        // 分录与余额都处理完后才取变更序号：序列行锁只覆盖最后一次写入到提交，不串行化整个交易处理
+        savedTxn.setChangeSeq(changeSequenceService.next(ChangeSequenceService.TRANSACTIONS));
+        transactionRepository.save(savedTxn);
+
         // 新交易落账后清理余额缓存
         balanceCalculator.clearCache();
 
         // 重新加载包含分录的交易
         Transaction full = transactionRepository.findById(savedTxn.getId())
                 .orElseThrow(() -> new BusinessException("交易不存在: " + savedTxn.getId()));
+        reindexAfterCommit(full, memosOf(request.getSplits()));
         return transactionMapper.toTransactionResponse(full);
     }
 
@@ -267,7 +299,7 @@ public class TransactionService {
      */
     @Transactional(readOnly = true)
     public Page<TransactionResponse> pageTransactions(Pageable pageable) {
-        return transactionRepository.findAll(pageable).map(transactionMapper::toTransactionResponse);
+        return toResponsePage(transactionRepository.findAll(pageable));
     }
 
     /**
@@ -275,8 +307,7 @@ public class TransactionService {
      */
     @Transactional(readOnly = true)
     public Page<TransactionResponse> pageUnclearedTransactions(Pageable pageable) {
-        return transactionRepository.findByCleared(false, pageable)
-                .map(transactionMapper::toTransactionResponse);
+        return toResponsePage(transactionRepository.findByCleared(false, pageable));
     }
 
     /**
@@ -284,8 +315,7 @@ public class TransactionService {
      */
     @Transactional(readOnly = true)
     public Page<TransactionResponse> pageClearedTransactions(Pageable pageable) {
-        return transactionRepository.findByCleared(true, pageable)
-                .map(transactionMapper::toTransactionResponse);
+        return toResponsePage(transactionRepository.findByCleared(true, pageable));
     }
 
     /**
@@ -293,8 +323,7 @@ public class TransactionService {
      */
     @Transactional(readOnly = true)
     public Page<TransactionResponse> searchClearedTransactions(String q, Pageable pageable) {
-        return transactionRepository.searchCleared(q, pageable)
-                .map(transactionMapper::toTransactionResponse);
+        return toResponsePage(findClearedPage(null, q, pageable));
     }
 
     /**
@@ -303,8 +332,520 @@ public class TransactionService {
     @Transactional(readOnly = true)
     public Page<TransactionResponse> searchClearedTransactionsForUser(String username, String q, Pageable pageable) {
         if (username == null) throw new IllegalArgumentException("username required");
-        return transactionRepository.searchClearedByUser(username, q, pageable)
-                .map(transactionMapper::toTransactionResponse);
+        return toResponsePage(findClearedPage(username, q, pageable));
+    }
+
+    /**
+     * 键集分页查询全部交易（按交易日期、ID 倒序）。
+     *
+     * @param after     上一页返回的游标，为空表示第一页
+     * @param size      每页条数
+     * @param countMode 总数计算方式：none（默认）/ exact / estimate
+     */
+    @Transactional(readOnly = true)
+    public CursorSlice<TransactionResponse> sliceTransactions(String after, int size, String countMode) {
+        TransactionCursor cursor = TransactionCursor.decode(after);
+        Slice<Transaction> slice = transactionRepository.findSliceAfter(
+                cursorDate(cursor), cursorId(cursor), PageRequest.of(0, clampSliceSize(size)));
+        return toCursorSlice(slice, this::toResponsesWithSplits, countMode, "all", transactionRepository::count);
+    }
+
+    /**
+     * 键集分页获取待核对交易（cleared = false）。
+     */
+    @Transactional(readOnly = true)
+    public CursorSlice<TransactionResponse> sliceUnclearedTransactions(String after, int size, String countMode) {
+        TransactionCursor cursor = TransactionCursor.decode(after);
+        Slice<Transaction> slice = transactionRepository.findSliceByClearedAfter(
+                false, cursorDate(cursor), cursorId(cursor), PageRequest.of(0, clampSliceSize(size)));
+        return toCursorSlice(slice, this::toResponsesWithSplits, countMode, "uncleared",
+                () -> transactionRepository.countByCleared(false));
+    }
+
+    /**
+     * 键集分页搜索已核对交易。
+     */
+    @Transactional(readOnly = true)
+    public CursorSlice<TransactionResponse> sliceClearedTransactions(String q, String after, int size, String countMode) {
+        TransactionCursor cursor = TransactionCursor.decode(after);
+        Slice<Transaction> slice = findClearedSlice(null, q, cursor, clampSliceSize(size));
+        return toCursorSlice(slice, this::toResponsesWithSplits, countMode, "cleared|" + q,
+                () -> countCleared(null, q));
+    }
+
+    /**
+     * 键集分页搜索指定用户的已核对交易。
+     */
+    @Transactional(readOnly = true)
+    public CursorSlice<TransactionResponse> sliceClearedTransactionsForUser(String username, String q,
+            String after, int size, String countMode) {
+        if (username == null) throw new IllegalArgumentException("username required");
+        TransactionCursor cursor = TransactionCursor.decode(after);
+        Slice<Transaction> slice = findClearedSlice(username, q, cursor, clampSliceSize(size));
+        return toCursorSlice(slice, this::toResponsesWithSplits, countMode, "cleared|" + username + "|" + q,
+                () -> countCleared(username, q));
+    }
+
+    // ===== 摘要视图（view=summary）：只返回交易头与 SQL 聚合的分录数、借方合计，不加载分录 =====
+
+    @Transactional(readOnly = true)
+    public Page<TransactionSummaryResponse> pageTransactionSummaries(Pageable pageable) {
+        return transactionRepository.findSummaries(pageable);
+    }
+
+    @Transactional(readOnly = true)
+    public Page<TransactionSummaryResponse> pageUnclearedTransactionSummaries(Pageable pageable) {
+        return transactionRepository.findSummariesByCleared(false, pageable);
+    }
+
+    @Transactional(readOnly = true)
+    public Page<TransactionSummaryResponse> searchClearedTransactionSummaries(String q, Pageable pageable) {
+        return findClearedSummaryPage(null, q, pageable);
+    }
+
+    @Transactional(readOnly = true)
+    public Page<TransactionSummaryResponse> searchClearedTransactionSummariesForUser(String username, String q,
+            Pageable pageable) {
+        if (username == null) throw new IllegalArgumentException("username required");
+        return findClearedSummaryPage(username, q, pageable);
+    }
+
+    @Transactional(readOnly = true)
+    public CursorSlice<TransactionSummaryResponse> sliceTransactionSummaries(String after, int size, String countMode) {
+        TransactionCursor cursor = TransactionCursor.decode(after);
+        Slice<TransactionSummaryResponse> slice = transactionRepository.findSummarySliceAfter(
+                cursorDate(cursor), cursorId(cursor), PageRequest.of(0, clampSliceSize(size)));
+        return toSummaryCursorSlice(slice, countMode, "all", transactionRepository::count);
+    }
+
+    @Transactional(readOnly = true)
+    public CursorSlice<TransactionSummaryResponse> sliceUnclearedTransactionSummaries(String after, int size,
+            String countMode) {
+        TransactionCursor cursor = TransactionCursor.decode(after);
+        Slice<TransactionSummaryResponse> slice = transactionRepository.findSummarySliceByClearedAfter(
+                false, cursorDate(cursor), cursorId(cursor), PageRequest.of(0, clampSliceSize(size)));
+        return toSummaryCursorSlice(slice, countMode, "uncleared", () -> transactionRepository.countByCleared(false));
+    }
+
+    @Transactional(readOnly = true)
+    public CursorSlice<TransactionSummaryResponse> sliceClearedTransactionSummaries(String q, String after, int size,
+            String countMode) {
+        TransactionCursor cursor = TransactionCursor.decode(after);
+        Slice<TransactionSummaryResponse> slice = findClearedSummarySlice(null, q, cursor, clampSliceSize(size));
+        return toSummaryCursorSlice(slice, countMode, "cleared|" + q, () -> countCleared(null, q));
+    }
+
+    @Transactional(readOnly = true)
+    public CursorSlice<TransactionSummaryResponse> sliceClearedTransactionSummariesForUser(String username, String q,
+            String after, int size, String countMode) {
+        if (username == null) throw new IllegalArgumentException("username required");
+        TransactionCursor cursor = TransactionCursor.decode(after);
+        Slice<TransactionSummaryResponse> slice = findClearedSummarySlice(username, q, cursor, clampSliceSize(size));
+        return toSummaryCursorSlice(slice, countMode, "cleared|" + username + "|" + q,
+                () -> countCleared(username, q));
+    }
+
+    /**
+     * 按交易 ID 执行一次构造器投影查询，得到摘要并保持给定顺序（变更流、组合查询与索引检索命中使用）。
+     */
+    private List<TransactionSummaryResponse> toSummaries(List<Transaction> rows) {
+        List<Long> ids = new ArrayList<>(rows.size());
+        for (Transaction t : rows) {
+            ids.add(t.getId());
+        }
+        return summariesInOrder(ids);
+    }
+
+    private List<TransactionSummaryResponse> summariesInOrder(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        Map<Long, TransactionSummaryResponse> byId = new HashMap<>();
+        for (TransactionSummaryResponse summary : transactionRepository.findSummariesByIdIn(ids)) {
+            byId.put(summary.getId(), summary);
+        }
+        List<TransactionSummaryResponse> result = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            TransactionSummaryResponse summary = byId.get(id);
+            if (summary != null) {
+                result.add(summary);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 多条件组合查询交易（键集分页，按交易日期、ID 倒序）。
+     * 条件由 {@link TransactionQueryBuilder} 按固定顺序全部下推到 SQL，访问路径由数据库优化器选择。
+     */
+    @Transactional(readOnly = true)
+    public CursorSlice<TransactionResponse> queryTransactions(TransactionQueryRequest request) {
+        return runQuery(request, this::toResponsesWithSplits);
+    }
+
+    /**
+     * 多条件组合查询交易摘要（view=summary）。
+     */
+    @Transactional(readOnly = true)
+    public CursorSlice<TransactionSummaryResponse> queryTransactionSummaries(TransactionQueryRequest request) {
+        return runQuery(request, this::toSummaries);
+    }
+
+    private <T> CursorSlice<T> runQuery(TransactionQueryRequest request,
+            java.util.function.Function<List<Transaction>, List<T>> mapper) {
+        TransactionQueryBuilder.Query query = buildQuery(request);
+        TransactionCursor cursor = TransactionCursor.decode(request.getAfter());
+        int size = clampSliceSize(request.getSize());
+        List<Transaction> rows = query.fetch(cursorDate(cursor), cursorId(cursor), size + 1);
+        boolean hasNext = rows.size() > size;
+        Slice<Transaction> slice = new SliceImpl<>(hasNext ? rows.subList(0, size) : rows,
+                PageRequest.of(0, size), hasNext);
+        return toCursorSlice(slice, mapper, request.getCount(), "query|" + queryKey(request), query::count);
+    }
+
+    private TransactionQueryBuilder.Query buildQuery(TransactionQueryRequest request) {
+        if (request.getMinAmount() != null && request.getMaxAmount() != null
+                && request.getMinAmount().compareTo(request.getMaxAmount()) > 0) {
+            throw new BusinessException("金额下限不能大于上限");
+        }
+        if (request.getFrom() != null && request.getTo() != null && request.getFrom().isAfter(request.getTo())) {
+            throw new BusinessException("开始日期不能晚于结束日期");
+        }
+        DebitCredit direction = null;
+        if (request.getDirection() != null && !request.getDirection().isBlank()) {
+            try {
+                direction = DebitCredit.valueOf(request.getDirection().trim().toUpperCase());
+            } catch (IllegalArgumentException ex) {
+                throw new BusinessException("非法借贷方向: " + request.getDirection());
+            }
+        }
+        java.util.Set<Long> accountIds = null;
+        if (request.getAccountId() != null) {
+            accountIds = request.isIncludeDescendants()
+                    ? accountWithDescendants(request.getAccountId())
+                    : java.util.Set.of(request.getAccountId());
+        }
+        return transactionQueryBuilder.query()
+                .accounts(accountIds)
+                .commodity(request.getCommodityId())
+                .amountBetween(request.getMinAmount(), request.getMaxAmount())
+                .direction(direction)
+                .operator(request.getOperator())
+                .tradeDateBetween(request.getFrom() != null ? request.getFrom().atStartOfDay() : null,
+                        request.getTo() != null ? request.getTo().plusDays(1).atStartOfDay() : null)
+                .cleared(request.getCleared())
+                .rejected(request.getRejected());
+    }
+
+    /**
+     * 账户及其全部下级账户 ID：一次查询取出账户树的父子关系，在内存中广度优先展开。
+     */
+    private java.util.Set<Long> accountWithDescendants(Long rootId) {
+        Map<Long, List<Long>> children = new HashMap<>();
+        for (Object[] row : accountRepository.findAllIdAndParentId()) {
+            if (row[1] != null) {
+                children.computeIfAbsent((Long) row[1], k -> new ArrayList<>()).add((Long) row[0]);
+            }
+        }
+        java.util.Set<Long> result = new java.util.LinkedHashSet<>();
+        java.util.ArrayDeque<Long> queue = new java.util.ArrayDeque<>();
+        queue.add(rootId);
+        while (!queue.isEmpty()) {
+            Long id = queue.poll();
+            if (result.add(id)) {
+                queue.addAll(children.getOrDefault(id, List.of()));
+            }
+        }
+        return result;
+    }
+
+    private static String queryKey(TransactionQueryRequest r) {
+        return r.getAccountId() + "|" + r.isIncludeDescendants() + "|" + r.getMinAmount() + "|" + r.getMaxAmount()
+                + "|" + r.getDirection() + "|" + r.getFrom() + "|" + r.getTo() + "|" + r.getOperator()
+                + "|" + r.getCleared() + "|" + r.getRejected() + "|" + r.getCommodityId();
+    }
+
+    /**
+     * 交易变更流：返回变更序号大于 since 的交易及新的高水位版本号。
+     * 未传 since 时只返回当前版本号（客户端初始化用）；没有新变更时只读一次序列行，不查询交易表。
+     * since 大于服务器版本（例如数据被重置）时同样返回服务器当前版本，客户端以此重新开始。
+     */
+    @Transactional(readOnly = true)
+    public ChangeFeed<TransactionResponse> changesSince(Long since, int limit) {
+        return changesSince(since, limit, this::toResponsesWithSplits);
+    }
+
+    @Transactional(readOnly = true)
+    public ChangeFeed<TransactionSummaryResponse> summaryChangesSince(Long since, int limit) {
+        return changesSince(since, limit, this::toSummaries);
+    }
+
+    private <T> ChangeFeed<T> changesSince(Long since, int limit,
+            java.util.function.Function<List<Transaction>, List<T>> mapper) {
+        // 先读高水位再查数据：之后提交的变更版本号必然更大，留给下一次拉取
+        long version = changeSequenceService.current(ChangeSequenceService.TRANSACTIONS);
+        ChangeFeed<T> feed = new ChangeFeed<>();
+        feed.setVersion(version);
+        if (since == null || since >= version) {
+            feed.setChanges(List.of());
+            return feed;
+        }
+        int size = clampSliceSize(limit);
+        List<Transaction> rows = transactionRepository.findChangedBetween(since, version, PageRequest.of(0, size + 1));
+        boolean hasMore = rows.size() > size;
+        if (hasMore) {
+            rows = rows.subList(0, size);
+            feed.setVersion(rows.get(rows.size() - 1).getChangeSeq());
+        }
+        feed.setHasMore(hasMore);
+        feed.setChanges(mapper.apply(rows));
+        return feed;
+    }
+
+    // ===== 已核对交易检索：查询词可由内存索引回答时按排名取 ID 再按主键加载，否则回退到数据库 like 查询 =====
+
+    private Page<Transaction> findClearedPage(String createdBy, String q, Pageable pageable) {
+        if (!searchIndex.supports(q)) {
+            return createdBy == null
+                    ? transactionRepository.searchCleared(q, pageable)
+                    : transactionRepository.searchClearedByUser(createdBy, q, pageable);
+        }
+        List<TransactionSearchIndex.Hit> hits = searchIndex.search(q, true, createdBy);
+        return new PageImpl<>(loadInOrder(pageOf(hits, pageable)), pageable, hits.size());
+    }
+
+    private Page<TransactionSummaryResponse> findClearedSummaryPage(String createdBy, String q, Pageable pageable) {
+        if (!searchIndex.supports(q)) {
+            return createdBy == null
+                    ? transactionRepository.searchClearedSummaries(q, pageable)
+                    : transactionRepository.searchClearedSummariesByUser(createdBy, q, pageable);
+        }
+        List<TransactionSearchIndex.Hit> hits = searchIndex.search(q, true, createdBy);
+        return new PageImpl<>(summariesInOrder(ids(pageOf(hits, pageable))), pageable, hits.size());
+    }
+
+    private Slice<Transaction> findClearedSlice(String createdBy, String q, TransactionCursor cursor, int size) {
+        if (!searchIndex.supports(q)) {
+            return createdBy == null
+                    ? transactionRepository.searchClearedSliceAfter(q, cursorDate(cursor), cursorId(cursor),
+                            PageRequest.of(0, size))
+                    : transactionRepository.searchClearedByUserSliceAfter(createdBy, q, cursorDate(cursor),
+                            cursorId(cursor), PageRequest.of(0, size));
+        }
+        Slice<TransactionSearchIndex.Hit> hits = seekHits(createdBy, q, cursor, size);
+        return new SliceImpl<>(loadInOrder(hits.getContent()), hits.getPageable(), hits.hasNext());
+    }
+
+    private Slice<TransactionSummaryResponse> findClearedSummarySlice(String createdBy, String q,
+            TransactionCursor cursor, int size) {
+        if (!searchIndex.supports(q)) {
+            return createdBy == null
+                    ? transactionRepository.searchClearedSummarySliceAfter(q, cursorDate(cursor), cursorId(cursor),
+                            PageRequest.of(0, size))
+                    : transactionRepository.searchClearedSummaryByUserSliceAfter(createdBy, q, cursorDate(cursor),
+                            cursorId(cursor), PageRequest.of(0, size));
+        }
+        Slice<TransactionSearchIndex.Hit> hits = seekHits(createdBy, q, cursor, size);
+        return new SliceImpl<>(summariesInOrder(ids(hits.getContent())), hits.getPageable(), hits.hasNext());
+    }
+
+    private static List<TransactionSearchIndex.Hit> pageOf(List<TransactionSearchIndex.Hit> hits, Pageable pageable) {
+        int from = pageable.isPaged() ? (int) Math.min(pageable.getOffset(), hits.size()) : 0;
+        int to = pageable.isPaged() ? Math.min(from + pageable.getPageSize(), hits.size()) : hits.size();
+        return hits.subList(from, to);
+    }
+
+    /**
+     * 索引命中按 (tradeDate desc, id desc) 排序后取游标之后的一页；键集分页需要稳定顺序，此处不使用相关度排序。
+     */
+    private Slice<TransactionSearchIndex.Hit> seekHits(String createdBy, String q, TransactionCursor cursor, int size) {
+        List<TransactionSearchIndex.Hit> hits = new ArrayList<>(searchIndex.search(q, true, createdBy));
+        hits.sort(java.util.Comparator.comparing(TransactionSearchIndex.Hit::tradeDate,
+                        java.util.Comparator.nullsLast(java.util.Comparator.reverseOrder()))
+                .thenComparing(TransactionSearchIndex.Hit::id, java.util.Comparator.reverseOrder()));
+        List<TransactionSearchIndex.Hit> page = new ArrayList<>(size);
+        boolean hasNext = false;
+        for (TransactionSearchIndex.Hit hit : hits) {
+            if (cursor != null && !isAfter(hit, cursor)) continue;
+            if (page.size() == size) {
+                hasNext = true;
+                break;
+            }
+            page.add(hit);
+        }
+        return new SliceImpl<>(page, PageRequest.of(0, size), hasNext);
+    }
+
+    private static List<Long> ids(List<TransactionSearchIndex.Hit> hits) {
+        List<Long> ids = new ArrayList<>(hits.size());
+        for (TransactionSearchIndex.Hit hit : hits) {
+            ids.add(hit.id());
+        }
+        return ids;
+    }
+
+    private static boolean isAfter(TransactionSearchIndex.Hit hit, TransactionCursor cursor) {
+        if (hit.tradeDate() == null || cursor.getTradeDate() == null) {
+            return hit.id() < cursor.getId();
+        }
+        int cmp = hit.tradeDate().compareTo(cursor.getTradeDate());
+        return cmp < 0 || (cmp == 0 && hit.id() < cursor.getId());
+    }
+
+    private long countCleared(String createdBy, String q) {
+        if (searchIndex.supports(q)) {
+            return searchIndex.count(q, true, createdBy);
+        }
+        return createdBy == null
+                ? transactionRepository.countSearchCleared(q)
+                : transactionRepository.countSearchClearedByUser(createdBy, q);
+    }
+
+    /**
+     * 按主键批量加载交易并保持命中顺序；索引中存在但已被删除的交易会被跳过。
+     */
+    private List<Transaction> loadInOrder(List<TransactionSearchIndex.Hit> hits) {
+        if (hits.isEmpty()) {
+            return List.of();
+        }
+        List<Long> ids = ids(hits);
+        Map<Long, Transaction> byId = new HashMap<>();
+        for (Transaction t : transactionRepository.findAllById(ids)) {
+            byId.put(t.getId(), t);
+        }
+        List<Transaction> result = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            Transaction t = byId.get(id);
+            if (t != null) {
+                result.add(t);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 事务提交后再更新检索索引，避免回滚的修改出现在检索结果中。
+     */
+    private void reindexAfterCommit(Transaction transaction, List<String> memos) {
+        runAfterCommit(() -> searchIndex.index(transaction, memos));
+    }
+
+    private static void runAfterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    private static List<String> memosOf(List<SplitCreateRequest> splits) {
+        if (splits == null) {
+            return List.of();
+        }
+        List<String> memos = new ArrayList<>(splits.size());
+        for (SplitCreateRequest split : splits) {
+            memos.add(split.getMemo());
+        }
+        return memos;
+    }
+
+    private Page<TransactionResponse> toResponsePage(Page<Transaction> page) {
+        return new PageImpl<>(toResponsesWithSplits(page.getContent()), page.getPageable(), page.getTotalElements());
+    }
+
+    /**
+     * 两阶段加载：分页查询只取本页交易头，再按这些 ID 用一条查询抓取分录、账户与商品，
+     * 避免映射时逐行懒加载造成的 N+1 查询。返回顺序与分页结果一致。
+     */
+    private List<TransactionResponse> toResponsesWithSplits(List<Transaction> rows) {
+        if (rows.isEmpty()) {
+            return List.of();
+        }
+        List<Long> ids = new ArrayList<>(rows.size());
+        for (Transaction t : rows) {
+            ids.add(t.getId());
+        }
+        Map<Long, Transaction> loaded = new HashMap<>();
+        for (Transaction t : transactionRepository.findWithSplitsByIdIn(ids)) {
+            loaded.put(t.getId(), t);
+        }
+        List<TransactionResponse> result = new ArrayList<>(rows.size());
+        for (Transaction t : rows) {
+            result.add(transactionMapper.toTransactionResponse(loaded.getOrDefault(t.getId(), t)));
+        }
+        return result;
+    }
+
+    private static LocalDateTime cursorDate(TransactionCursor cursor) {
+        return cursor != null ? cursor.getTradeDate() : null;
+    }
+
+    private static Long cursorId(TransactionCursor cursor) {
+        return cursor != null ? cursor.getId() : null;
+    }
+
+    private static int clampSliceSize(int size) {
+        if (size <= 0) return DEFAULT_SLICE_SIZE;
+        return Math.min(size, MAX_SLICE_SIZE);
+    }
+
+    private <T> CursorSlice<T> toCursorSlice(Slice<Transaction> slice,
+            java.util.function.Function<List<Transaction>, List<T>> mapper, String countMode,
+            String countKey, java.util.function.LongSupplier counter) {
+        List<Transaction> rows = slice.getContent();
+        TransactionCursor next = slice.hasNext() && !rows.isEmpty()
+                ? TransactionCursor.of(rows.get(rows.size() - 1)) : null;
+        return cursorSlice(mapper.apply(rows), rows.size(), slice.hasNext(), next, countMode, countKey, counter);
+    }
+
+    private CursorSlice<TransactionSummaryResponse> toSummaryCursorSlice(Slice<TransactionSummaryResponse> slice,
+            String countMode, String countKey, java.util.function.LongSupplier counter) {
+        List<TransactionSummaryResponse> rows = slice.getContent();
+        TransactionCursor next = null;
+        if (slice.hasNext() && !rows.isEmpty()) {
+            TransactionSummaryResponse last = rows.get(rows.size() - 1);
+            next = new TransactionCursor(last.getTradeDate(), last.getId());
+        }
+        return cursorSlice(rows, rows.size(), slice.hasNext(), next, countMode, countKey, counter);
+    }
+
+    private <T> CursorSlice<T> cursorSlice(List<T> content, int size, boolean hasNext, TransactionCursor next,
+            String countMode, String countKey, java.util.function.LongSupplier counter) {
+        CursorSlice<T> result = new CursorSlice<>();
+        result.setContent(content);
+        result.setSize(size);
+        result.setHasNext(hasNext);
+        if (next != null) {
+            result.setNextCursor(next.encode());
+        }
+        if ("exact".equalsIgnoreCase(countMode)) {
+            result.setTotalElements(counter.getAsLong());
+        } else if ("estimate".equalsIgnoreCase(countMode)) {
+            result.setTotalElements(estimateCount(countKey, counter));
+        }
+        return result;
+    }
+
+    /**
+     * 近似总数：精确 COUNT 的结果缓存一段时间，同一查询条件在有效期内不再重复计数。
+     */
+    private long estimateCount(String key, java.util.function.LongSupplier counter) {
+        long now = System.currentTimeMillis();
+        long[] cached = countEstimates.get(key);
+        if (cached != null && cached[1] > now) {
+            return cached[0];
+        }
+        long value = counter.getAsLong();
+        if (countEstimates.size() >= MAX_COUNT_ESTIMATES) {
+            countEstimates.clear();
+        }
+        countEstimates.put(key, new long[] {value, now + COUNT_ESTIMATE_TTL_MILLIS});
+        return value;
     }
 
     /**
@@ -425,20 +966,23 @@ public class TransactionService {
         existing.setRejectionReason(null);
         existing.setRejectedAt(null);
         existing.setRejectedBy(null);
+        existing.setChangeSeq(changeSequenceService.next(ChangeSequenceService.TRANSACTIONS));
 
         Transaction saved = transactionRepository.save(existing);
+        reindexAfterCommit(saved, memosOf(request.getSplits()));
 
         // clear balance cache
         balanceCalculator.clearCache();
 
-        // notify admin that a resubmission occurred
-        try {
-            notificationService.notifyUser("boss", "transaction_resubmitted",
-                    java.util.Map.of("transactionId", saved.getId(), "submittedBy", currentUser, "submittedAt", java.time.LocalDateTime.now()));
-            // also broadcast to all connected users as fallback to ensure boss receives
-            notificationService.notifyAllUsers("transaction_resubmitted",
-                    java.util.Map.of("transactionId", saved.getId(), "submittedBy", currentUser, "submittedAt", java.time.LocalDateTime.now()));
-        } catch (Exception ignored) {}
+        // notify admin that a resubmission occurred (published after commit)
+        // currentUser 可能为 null（无认证上下文），Map.of 不接受 null 值，会在提交前抛异常回滚整个更新
+        java.util.Map<String, Object> resubmitted = new java.util.HashMap<>();
+        resubmitted.put("transactionId", saved.getId());
+        resubmitted.put("submittedBy", currentUser);
+        resubmitted.put("submittedAt", java.time.LocalDateTime.now());
+        eventPublisher.publishEvent(NotificationEvent.toUser("boss", "transaction_resubmitted", saved.getId(), resubmitted));
+        // also broadcast to all connected users as fallback to ensure boss receives
+        eventPublisher.publishEvent(NotificationEvent.broadcast("transaction_resubmitted", saved.getId(), resubmitted));
 
         return transactionMapper.toTransactionResponse(saved);
     }
@@ -453,7 +997,10 @@ public class TransactionService {
             throw new BusinessException("该交易已审核，不能重复审核");
         }
         transaction.setCleared(approved);
+        transaction.setChangeSeq(changeSequenceService.next(ChangeSequenceService.TRANSACTIONS));
         Transaction saved = transactionRepository.save(transaction);
+        runAfterCommit(() -> searchIndex.updateCleared(saved.getId(), Boolean.TRUE.equals(approved),
+                saved.getChangeSeq()));
         return transactionMapper.toTransactionResponse(saved);
     }
 
@@ -484,18 +1031,18 @@ public class TransactionService {
             Authentication auth = SecurityContextHolder.getContext().getAuthentication();
             transaction.setRejectedBy(auth != null ? auth.getName() : null);
         }
+        transaction.setChangeSeq(changeSequenceService.next(ChangeSequenceService.TRANSACTIONS));
         Transaction saved = transactionRepository.save(transaction);
+        runAfterCommit(() -> searchIndex.updateCleared(saved.getId(), Boolean.TRUE.equals(approved),
+                saved.getChangeSeq()));
         // notify the owner (createdBy) if rejected
         if (Boolean.FALSE.equals(approved) && saved.getCreatedBy() != null) {
-            try {
-                var payload = java.util.Map.of(
-                        "transactionId", saved.getId(),
-                        "reason", saved.getRejectionReason(),
-                        "rejectedBy", saved.getRejectedBy(),
-                        "rejectedAt", saved.getRejectedAt()
-                );
-                notificationService.notifyUser(saved.getCreatedBy(), "transaction_rejected", payload);
-            } catch (Exception ignored) {}
+            java.util.Map<String, Object> payload = new java.util.HashMap<>();
+            payload.put("transactionId", saved.getId());
+            payload.put("reason", saved.getRejectionReason());
+            payload.put("rejectedBy", saved.getRejectedBy());
+            payload.put("rejectedAt", saved.getRejectedAt());
+            eventPublisher.publishEvent(NotificationEvent.toUser(saved.getCreatedBy(), "transaction_rejected", saved.getId(), payload));
         }
         return transactionMapper.toTransactionResponse(saved);
     }
@@ -517,7 +1064,7 @@ public class TransactionService {
         if (auth == null || !auth.isAuthenticated()) return org.springframework.data.domain.Page.empty();
         String username = auth.getName();
         Page<Transaction> page = transactionRepository.findByCreatedByAndRejectedTrueAndClearedFalse(username, pageable);
-        List<TransactionResponse> dtos = transactionMapper.toTransactionResponses(page.getContent());
+        List<TransactionResponse> dtos = toResponsesWithSplits(page.getContent());
         return new org.springframework.data.domain.PageImpl<>(dtos, pageable, page.getTotalElements());
     }
 }
@@ -0,0 +1,31 @@
+package org.example.accounting.service.impl;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import org.example.accounting.service.EmailService;
+import org.example.accounting.service.OutboxHandler;
+import org.example.accounting.service.OutboxService;
+import org.springframework.stereotype.Component;
+
+/**
+ * 投递发件箱中的邮件消息。
+ */
+@Component
+public class EmailOutboxHandler implements OutboxHandler {
+
+    private final EmailService emailService;
+
+    public EmailOutboxHandler(EmailService emailService) {
+        this.emailService = emailService;
+    }
+
+    @Override
+    public String type() {
+        return OutboxService.EMAIL;
+    }
+
+    @Override
+    public void handle(JsonNode payload) {
+        emailService.sendEmail(payload.path("to").asText(), payload.path("subject").asText(),
+                payload.path("body").asText());
+    }
+}
@@ -0,0 +1,81 @@
+package org.example.accounting.service.impl;
+
+import java.util.List;
+import java.util.Set;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter.DataWithMediaType;
+
+/**
+ * 最近已发布 SSE 事件的定长环形缓冲，用于断线重连时按 Last-Event-ID 补发。
+ * 事件 ID 全局递增；写满后覆盖最旧的事件并记录被覆盖的最大 ID，
+ * 若客户端的 Last-Event-ID 小于该值，说明有事件已无法补发，调用方应改为通知客户端整体重新同步。
+ * 记录最后一次写入时间，供调用方回收长期空闲的缓冲。
+ * 非线程安全，由调用方加锁。
+ */
+final class EventRing {
+
+    /**
+     * 缓冲中的一条事件：ID、事件类型与已编码的 SSE 帧。
+     */
+    record Entry(long id, String type, Set<DataWithMediaType> frame) {
+    }
+
+    private final Entry[] entries;
+    private int head;
+    private int size;
+    private long evictedUpTo;
+    private long lastAppendMillis = System.currentTimeMillis();
+
+    EventRing(int capacity) {
+        this(capacity, 0);
+    }
+
+    /**
+     * @param evictedUpTo 创建前已无法补发的最大事件 ID（如同一用户先前被回收的缓冲中的事件）
+     */
+    EventRing(int capacity, long evictedUpTo) {
+        this.entries = new Entry[Math.max(1, capacity)];
+        this.evictedUpTo = evictedUpTo;
+    }
+
+    void append(long id, String type, Set<DataWithMediaType> frame) {
+        int tail = (head + size) % entries.length;
+        if (size == entries.length) {
+            evictedUpTo = entries[head].id();
+            head = (head + 1) % entries.length;
+        } else {
+            size++;
+        }
+        entries[tail] = new Entry(id, type, frame);
+        lastAppendMillis = System.currentTimeMillis();
+    }
+
+    long lastAppendMillis() {
+        return lastAppendMillis;
+    }
+
+    /**
+     * 缓冲中最新事件的 ID；为空时返回已无法补发的最大 ID。
+     */
+    long lastId() {
+        return size == 0 ? evictedUpTo : entries[(head + size - 1) % entries.length].id();
+    }
+
+    /**
+     * ID 大于 lastId 的事件是否都还在缓冲中。
+     */
+    boolean covers(long lastId) {
+        return evictedUpTo <= lastId;
+    }
+
+    /**
+     * 按 ID 升序把 ID 大于 lastId 的事件追加到 out。
+     */
+    void collectAfter(long lastId, List<Entry> out) {
+        for (int i = 0; i < size; i++) {
+            Entry e = entries[(head + i) % entries.length];
+            if (e.id() > lastId) {
+                out.add(e);
+            }
+        }
+    }
+}
@@ -1,68 +1,317 @@
 package org.example.accounting.service.impl;
 
+import org.example.accounting.domain.StoredFile;
+import org.example.accounting.repository.StoredFileRepository;
 import org.example.accounting.service.FileStorageService;
+import org.example.accounting.service.StorageBackend;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
+import jakarta.annotation.PreDestroy;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.nio.file.StandardCopyOption;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Objects;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
 
 /**
  * 文件存储服务实现。
+ * 支持两种模式（file.storage.mode）：
+ * <ul>
+ *     <li>content-addressed（默认）：上传时边写临时文件边计算 SHA-256，以哈希为存储名，
+ *     按哈希前两级前缀分目录存放（ab/cd/abcd...），相同内容只存一份并做引用计数，引用归零时删除</li>
+ *     <li>flat：随机 UUID 文件名平铺在上传目录（旧模式）</li>
+ * </ul>
+ * 两种存储名可以共存：64 位十六进制的存储名按分级目录解析，其余按旧的平铺目录解析。
+ * 两种模式都先把上传流直接写入临时文件（边写边算哈希，不在内存中缓冲整个文件），完成后写入存储后端；
+ * 多个文件由存储线程池并行写入。
+ * 可选静态压缩（file.storage.compress）：文本类等可压缩类型以 GZIP 存储，编码随附件记录保存，
+ * 读取时由调用方决定直接透传 GZIP 还是解压。
+ * 文件内容的存放交给 {@link StorageBackend}（本地、对象存储或分层），临时文件与缩略图始终在本地上传目录。
  */
 @Service
 public class FileStorageServiceImpl implements FileStorageService {
 
+    private static final Pattern SHA256_NAME = Pattern.compile("[0-9a-f]{64}");
+    private static final int LOCK_STRIPES = 64;
+    private static final String GZIP = "gzip";
+
     private final Path fileStorageLocation;
+    private final Path tempLocation;
+    private final Path thumbnailLocation;
+    private final boolean contentAddressed;
+    private final boolean compression;
+    private final StoredFileRepository storedFileRepository;
+    private final StorageBackend backend;
+    // 同一哈希的引用计数变更与物理文件增删需互斥（按哈希分段加锁）
+    private final Object[] locks = new Object[LOCK_STRIPES];
+    private final ExecutorService writers;
 
-    public FileStorageServiceImpl(@Value("${file.upload-dir:uploads}") String uploadDir) {
+    public FileStorageServiceImpl(@Value("${file.upload-dir:uploads}") String uploadDir,
+                                  @Value("${file.storage.mode:content-addressed}") String mode,
+                                  @Value("${file.storage.write-threads:4}") int writeThreads,
+                                  @Value("${file.storage.compress:true}") boolean compression,
+                                  StoredFileRepository storedFileRepository,
+                                  StorageBackend backend) {
         this.fileStorageLocation = Paths.get(uploadDir).toAbsolutePath().normalize();
+        this.tempLocation = this.fileStorageLocation.resolve(".tmp");
+        this.thumbnailLocation = this.fileStorageLocation.resolve(".thumbs");
+        this.contentAddressed = !"flat".equalsIgnoreCase(mode);
+        this.compression = compression;
+        this.storedFileRepository = storedFileRepository;
+        this.backend = backend;
+        for (int i = 0; i < locks.length; i++) {
+            locks[i] = new Object();
+        }
+        AtomicInteger seq = new AtomicInteger();
+        this.writers = Executors.newFixedThreadPool(Math.max(1, writeThreads), r -> {
+            Thread t = new Thread(r, "file-store-" + seq.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
         try {
             Files.createDirectories(this.fileStorageLocation);
+            Files.createDirectories(this.tempLocation);
         } catch (Exception ex) {
             throw new RuntimeException("无法创建文件存储目录: " + this.fileStorageLocation, ex);
         }
     }
 
+    @PreDestroy
+    public void shutdown() {
+        writers.shutdown();
+    }
+
     @Override
     public String storeFile(MultipartFile file) {
+        // 只返回存储名、调用方无法记录编码，因此不压缩
+        return store(file, false).storedFilename();
+    }
+
+    @Override
+    public List<StoredUpload> storeFiles(List<MultipartFile> files) {
+        if (files.size() == 1) {
+            return List.of(store(files.get(0), true));
+        }
+        List<CompletableFuture<StoredUpload>> futures = new ArrayList<>(files.size());
+        for (MultipartFile file : files) {
+            futures.add(CompletableFuture.supplyAsync(() -> store(file, true), writers));
+        }
+        List<StoredUpload> stored = new ArrayList<>(files.size());
+        RuntimeException failure = null;
+        for (CompletableFuture<StoredUpload> future : futures) {
+            try {
+                stored.add(future.join());
+            } catch (CompletionException ex) {
+                if (failure == null) {
+                    failure = ex.getCause() instanceof RuntimeException re ? re : new RuntimeException(ex.getCause());
+                }
+            }
+        }
+        if (failure != null) {
+            // 部分失败：释放已存储的文件
+            for (StoredUpload upload : stored) {
+                try {
+                    deleteFile(upload.storedFilename());
+                } catch (RuntimeException ignored) {
+                }
+            }
+            throw failure;
+        }
+        return stored;
+    }
+
+    /**
+     * 把上传流写入临时文件并计算 SHA-256，再按模式原子移动到最终位置。
+     */
+    private StoredUpload store(MultipartFile file, boolean allowCompression) {
+        Path temp = null;
         try {
-            // 生成唯一文件名
-            String originalFilename = file.getOriginalFilename();
-            String extension = "";
-            if (originalFilename != null && originalFilename.contains(".")) {
-                extension = originalFilename.substring(originalFilename.lastIndexOf("."));
+            temp = Files.createTempFile(tempLocation, "upload-", ".part");
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            String encoding = allowCompression && compression && FileStorageService.isCompressible(file.getContentType(), file.getSize())
+                    ? GZIP : null;
+            long size;
+            // 哈希与大小按原始内容计算；需要压缩时原始内容经 GZIP 写入临时文件
+            try (InputStream in = file.getInputStream();
+                 OutputStream fileOut = Files.newOutputStream(temp);
+                 OutputStream out = new DigestOutputStream(
+                         encoding != null ? new GZIPOutputStream(fileOut, 64 * 1024) : fileOut, digest)) {
+                size = in.transferTo(out);
             }
-            String storedFilename = UUID.randomUUID().toString() + extension;
-            
-            // 保存文件
-            Path targetLocation = this.fileStorageLocation.resolve(storedFilename);
-            Files.copy(file.getInputStream(), targetLocation, StandardCopyOption.REPLACE_EXISTING);
-            
-            return storedFilename;
-        } catch (IOException ex) {
+            if (!contentAddressed) {
+                String storedFilename = UUID.randomUUID().toString() + extensionOf(file.getOriginalFilename());
+                backend.put(storedFilename, temp);
+                return new StoredUpload(storedFilename, size, encoding);
+            }
+            String sha256 = HexFormat.of().formatHex(digest.digest());
+            return new StoredUpload(sha256, size, commit(sha256, size, encoding, temp));
+        } catch (IOException | NoSuchAlgorithmException ex) {
             throw new RuntimeException("存储文件失败: " + file.getOriginalFilename(), ex);
+        } finally {
+            deleteQuietly(temp);
+        }
+    }
+
+    /**
+     * 登记一次引用，并在内容尚未存储时把临时文件写入后端（分级键）；已存在则丢弃临时文件（去重）。
+     *
+     * @return 磁盘上该内容实际使用的编码（已存在时沿用已有文件的编码）
+     */
+    private String commit(String sha256, long size, String encoding, Path temp) throws IOException {
+        synchronized (lockFor(sha256)) {
+            StoredFile existing = null;
+            if (storedFileRepository.incrementRef(sha256) == 0) {
+                try {
+                    storedFileRepository.save(StoredFile.builder()
+                            .sha256(sha256).fileSize(size).contentEncoding(encoding).refCount(1L)
+                            .createdAt(LocalDateTime.now()).build());
+                } catch (DataIntegrityViolationException ex) {
+                    // 其他节点同时插入了该记录
+                    storedFileRepository.incrementRef(sha256);
+                    existing = storedFileRepository.findById(sha256).orElse(null);
+                }
+            } else {
+                existing = storedFileRepository.findById(sha256).orElse(null);
+            }
+            // 记录已存在时以记录的编码为准：其他附件行按该编码读取
+            String stored = existing != null ? existing.getContentEncoding() : encoding;
+            String key = keyFor(sha256);
+            if (backend.exists(key)) {
+                return stored;
+            }
+            // 记录存在但文件缺失，由本次上传补齐；编码不同时先转换为记录的编码
+            Path source = Objects.equals(stored, encoding) ? temp : recode(temp, encoding, stored);
+            try {
+                // put 返回 false 表示并发写入了相同内容
+                backend.put(key, source);
+            } finally {
+                if (source != temp) deleteQuietly(source);
+            }
+            return stored;
         }
     }
 
+    /**
+     * 把临时文件从 from 编码转换为 to 编码（gzip 或 null），写入新的临时文件。
+     */
+    private Path recode(Path source, String from, String to) throws IOException {
+        Path target = Files.createTempFile(tempLocation, "recode-", ".part");
+        try (InputStream raw = Files.newInputStream(source);
+             InputStream in = GZIP.equalsIgnoreCase(from) ? new GZIPInputStream(raw, 64 * 1024) : raw;
+             OutputStream fileOut = Files.newOutputStream(target);
+             OutputStream out = GZIP.equalsIgnoreCase(to) ? new GZIPOutputStream(fileOut, 64 * 1024) : fileOut) {
+            in.transferTo(out);
+        } catch (IOException ex) {
+            deleteQuietly(target);
+            throw ex;
+        }
+        return target;
+    }
+
     @Override
-    public Path getFilePath(String storedFilename) {
-        return this.fileStorageLocation.resolve(storedFilename).normalize();
+    public InputStream openDecoded(String storedFilename, String contentEncoding) throws IOException {
+        InputStream in = backend.open(keyFor(storedFilename));
+        if (GZIP.equalsIgnoreCase(contentEncoding)) {
+            return new GZIPInputStream(in, 64 * 1024);
+        }
+        return in;
+    }
+
+    private static String extensionOf(String originalFilename) {
+        if (originalFilename != null && originalFilename.contains(".")) {
+            return originalFilename.substring(originalFilename.lastIndexOf("."));
+        }
+        return "";
+    }
+
+    @Override
+    public InputStream openStored(String storedFilename, long start, long count) throws IOException {
+        return backend.open(keyFor(storedFilename), start, count);
+    }
+
+    @Override
+    public long storedSize(String storedFilename) throws IOException {
+        return backend.size(keyFor(storedFilename));
     }
 
+    @Override
+    public Path findLocalFile(String storedFilename) {
+        return backend.localPath(keyFor(storedFilename));
+    }
+
+    /**
+     * 存储键：64 位十六进制的存储名按前两级前缀分目录（ab/cd/abcd...），其余为平铺文件名。
+     */
+    private static String keyFor(String storedFilename) {
+        if (SHA256_NAME.matcher(storedFilename).matches()) {
+            return storedFilename.substring(0, 2) + "/" + storedFilename.substring(2, 4) + "/" + storedFilename;
+        }
+        if (storedFilename.isEmpty() || storedFilename.contains("/") || storedFilename.contains("\\")
+                || storedFilename.startsWith(".")) {
+            throw new IllegalArgumentException("非法存储名: " + storedFilename);
+        }
+        return storedFilename;
+    }
+
+    @Override
+    public Path getThumbnailPath(String storedFilename) {
+        return this.thumbnailLocation.resolve(keyFor(storedFilename) + ".jpg").normalize();
+    }
+
+    /**
+     * 删除文件。内容寻址的文件只减少一次引用，引用归零才删除物理文件。
+     */
     @Override
     public void deleteFile(String storedFilename) {
         try {
-            Path filePath = getFilePath(storedFilename);
-            Files.deleteIfExists(filePath);
+            if (SHA256_NAME.matcher(storedFilename).matches()) {
+                synchronized (lockFor(storedFilename)) {
+                    storedFileRepository.decrementRef(storedFilename);
+                    if (storedFileRepository.deleteUnreferenced(storedFilename) == 0) {
+                        return;
+                    }
+                    backend.delete(keyFor(storedFilename));
+                    Files.deleteIfExists(getThumbnailPath(storedFilename));
+                }
+                return;
+            }
+            backend.delete(keyFor(storedFilename));
+            Files.deleteIfExists(getThumbnailPath(storedFilename));
         } catch (IOException ex) {
             throw new RuntimeException("删除文件失败: " + storedFilename, ex);
         }
     }
-}
 
+    private Object lockFor(String sha256) {
+        return locks[Math.floorMod(sha256.hashCode(), LOCK_STRIPES)];
+    }
+
+    private static void deleteQuietly(Path path) {
+        if (path == null) return;
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException ignored) {
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package org.example.accounting.service.impl;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * SSE 空闲心跳的分片哈希时间轮。
+ * 每个连接按哈希落到一个分片，分片内是一圈以 tick 为刻度的桶，连接挂在“下次可能需要心跳”的那个桶里；
+ * 每个 tick 只检查当前桶：最近一次写出距今已满一个心跳间隔的连接才发心跳，其余按剩余空闲时间重新挂桶。
+ * 因此收到过真实事件的连接不会被多余地 ping，心跳按连接的注册/活动时间自然打散到各个 tick，
+ * 不再每 20 秒对全部连接集中发送一次。已关闭的连接在被访问到时惰性移除。
+ */
+final class HeartbeatWheel {
+
+    private final long intervalMillis;
+    private final long tickMillis;
+    private final int ticksPerInterval;
+    private final Consumer<List<SseConnection>> onIdle;
+    private final Shard[] shards;
+
+    /**
+     * @param shardCount     分片数（每个分片一个线程）
+     * @param intervalMillis 心跳间隔：连接空闲满该时长才发心跳
+     * @param tickMillis     时间轮刻度
+     * @param onIdle         每个 tick 收到该分片中需要心跳的连接
+     */
+    HeartbeatWheel(int shardCount, long intervalMillis, long tickMillis, Consumer<List<SseConnection>> onIdle) {
+        this.intervalMillis = intervalMillis;
+        this.tickMillis = Math.max(1, tickMillis);
+        this.ticksPerInterval = (int) Math.max(1, (intervalMillis + this.tickMillis - 1) / this.tickMillis);
+        this.onIdle = onIdle;
+        this.shards = new Shard[Math.max(1, shardCount)];
+        for (int i = 0; i < shards.length; i++) {
+            shards[i] = new Shard(i);
+        }
+    }
+
+    void start() {
+        // 各分片错开启动，tick 不对齐
+        for (int i = 0; i < shards.length; i++) {
+            shards[i].start(tickMillis * i / shards.length);
+        }
+    }
+
+    void stop() {
+        for (Shard shard : shards) {
+            shard.executor.shutdownNow();
+        }
+    }
+
+    /**
+     * 新连接加入时间轮，空闲一个心跳间隔后首次检查。
+     */
+    void add(SseConnection connection) {
+        Shard shard = shards[Math.floorMod(System.identityHashCode(connection), shards.length)];
+        shard.schedule(connection, ticksPerInterval);
+    }
+
+    private final class Shard implements Runnable {
+
+        // 桶数比一个间隔的 tick 数多 1，保证重新挂桶时不会落回正在处理的桶
+        private final List<Queue<SseConnection>> buckets;
+        private final ScheduledExecutorService executor;
+        private volatile long tick;
+
+        Shard(int index) {
+            this.buckets = new ArrayList<>(ticksPerInterval + 1);
+            for (int i = 0; i <= ticksPerInterval; i++) {
+                buckets.add(new ConcurrentLinkedQueue<>());
+            }
+            this.executor = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "sse-heartbeat-" + index);
+                t.setDaemon(true);
+                return t;
+            });
+        }
+
+        void start(long initialDelayMillis) {
+            executor.scheduleAtFixedRate(this, initialDelayMillis, tickMillis, TimeUnit.MILLISECONDS);
+        }
+
+        void schedule(SseConnection connection, int ticks) {
+            int delay = Math.min(Math.max(1, ticks), ticksPerInterval);
+            buckets.get((int) ((tick + delay) % buckets.size())).add(connection);
+        }
+
+        @Override
+        public void run() {
+            long current = tick;
+            Queue<SseConnection> bucket = buckets.get((int) (current % buckets.size()));
+            long now = System.currentTimeMillis();
+            List<SseConnection> idle = new ArrayList<>();
+            SseConnection connection;
+            while ((connection = bucket.poll()) != null) {
+                if (connection.isClosed()) continue;
+                long idleMillis = now - connection.getLastActivity();
+                if (idleMillis >= intervalMillis) {
+                    idle.add(connection);
+                    schedule(connection, ticksPerInterval);
+                } else {
+                    schedule(connection, (int) ((intervalMillis - idleMillis + tickMillis - 1) / tickMillis));
+                }
+            }
+            tick = current + 1;
+            if (!idle.isEmpty()) {
+                try {
+                    onIdle.accept(idle);
+                } catch (RuntimeException ignored) {
+                    // 心跳失败不能中断时间轮
+                }
+            }
+        }
+    }
+}
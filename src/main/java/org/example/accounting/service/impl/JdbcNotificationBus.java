@@ -0,0 +1,151 @@
+package org.example.accounting.service.impl;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.example.accounting.domain.NotificationMessage;
+import org.example.accounting.repository.NotificationMessageRepository;
+import org.example.accounting.service.NotificationBus;
+import org.example.accounting.service.NotificationService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+/**
+ * 基于共享数据库表的跨节点通知总线。
+ * 发布时写入 notification_messages 一行并唤醒本节点轮询；每个节点（包括发布者自己）都按 ID 递增轮询推送，
+ * 行 ID 即 SSE 事件 id，所有节点共用同一 id 空间且推送顺序一致，客户端重连到任一节点都能按 Last-Event-ID 补发。
+ * 并发插入时自增 ID 可能乱序提交：轮询遇到 ID 空洞时暂停推送，空洞超过 gap-timeout 仍未补上（回滚等）才跳过；
+ * 跳过后才提交的消息不再推送，以保持各节点顺序一致。
+ * 过期消息由各节点定期清理（删除操作幂等）。
+ */
+@Service
+@ConditionalOnProperty(name = "notification.bus.type", havingValue = "jdbc")
+public class JdbcNotificationBus implements NotificationBus {
+
+    private static final Logger log = LoggerFactory.getLogger(JdbcNotificationBus.class);
+
+    private static final int POLL_BATCH = 500;
+    private static final TypeReference<Map<String, Object>> PAYLOAD_TYPE = new TypeReference<>() { };
+
+    private final String nodeId = UUID.randomUUID().toString();
+    private final NotificationMessageRepository repository;
+    private final NotificationService notificationService;
+    private final ObjectMapper objectMapper;
+    private final long pollMillis;
+    private final long gapTimeoutMillis;
+    private final long retentionSeconds;
+    private final ScheduledExecutorService poller = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "notification-bus-poller");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private volatile boolean started;
+
+    // 以下状态只在轮询线程中访问
+    private long watermark;
+    private long gapSince;
+    private long lastCleanup;
+
+    public JdbcNotificationBus(NotificationMessageRepository repository,
+                               NotificationService notificationService,
+                               ObjectMapper objectMapper,
+                               @Value("${notification.bus.poll-ms:250}") long pollMillis,
+                               @Value("${notification.bus.gap-timeout-ms:2000}") long gapTimeoutMillis,
+                               @Value("${notification.bus.retention-seconds:300}") long retentionSeconds) {
+        this.repository = repository;
+        this.notificationService = notificationService;
+        this.objectMapper = objectMapper;
+        this.pollMillis = Math.max(10, pollMillis);
+        this.gapTimeoutMillis = gapTimeoutMillis;
+        this.retentionSeconds = retentionSeconds;
+    }
+
+    @Override
+    public void publish(String recipient, String event, Map<String, ?> payload) {
+        try {
+            repository.save(NotificationMessage.builder()
+                    .nodeId(nodeId)
+                    .recipient(recipient)
+                    .eventType(event)
+                    .payload(objectMapper.writeValueAsString(payload))
+                    .createdAt(LocalDateTime.now())
+                    .build());
+        } catch (Exception ex) {
+            log.warn("通知写入总线失败，仅推送本节点（不可补发）: type={}", event, ex);
+            deliver(null, recipient, event, payload);
+            return;
+        }
+        if (started) {
+            // 立即轮询一次，本节点连接不必等到下一个轮询周期
+            poller.execute(this::poll);
+        }
+    }
+
+    /**
+     * 应用就绪后从当前最大 ID 开始轮询，不重放历史消息。
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        watermark = repository.findMaxId();
+        started = true;
+        poller.scheduleWithFixedDelay(this::poll, pollMillis, pollMillis, TimeUnit.MILLISECONDS);
+        log.info("通知总线轮询已启动: node={}, from id={}", nodeId, watermark);
+    }
+
+    @PreDestroy
+    public void stop() {
+        poller.shutdownNow();
+    }
+
+    private void poll() {
+        try {
+            List<NotificationMessage> rows = repository.findAfter(watermark, PageRequest.of(0, POLL_BATCH));
+            long now = System.currentTimeMillis();
+            for (NotificationMessage m : rows) {
+                if (m.getId() != watermark + 1) {
+                    // ID 空洞：等待 gapTimeout 再跳过，期间不推送后面的消息
+                    if (gapSince == 0) gapSince = now;
+                    if (now - gapSince < gapTimeoutMillis) break;
+                }
+                watermark = m.getId();
+                gapSince = 0;
+                Map<String, Object> payload;
+                try {
+                    payload = objectMapper.readValue(m.getPayload(), PAYLOAD_TYPE);
+                } catch (Exception ex) {
+                    log.warn("通知负载无法解析，跳过: id={}", m.getId(), ex);
+                    continue;
+                }
+                deliver(m.getId(), m.getRecipient(), m.getEventType(), payload);
+            }
+            if (now - lastCleanup > TimeUnit.SECONDS.toMillis(Math.max(1, retentionSeconds))) {
+                lastCleanup = now;
+                repository.deleteCreatedBefore(LocalDateTime.now().minusSeconds(retentionSeconds));
+            }
+        } catch (Exception ex) {
+            log.warn("通知总线轮询失败", ex);
+        }
+    }
+
+    private void deliver(Long eventId, String recipient, String event, Map<String, ?> payload) {
+        if (recipient == null) {
+            notificationService.notifyAllUsers(eventId, event, payload);
+        } else {
+            notificationService.notifyUser(eventId, recipient, event, payload);
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package org.example.accounting.service.impl;
+
+import java.util.Map;
+import org.example.accounting.service.NotificationBus;
+import org.example.accounting.service.NotificationService;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+/**
+ * 单节点通知总线：直接推送给本节点的 SSE 连接。
+ * 事件 id 以启动时间为种子递增，重启后的 id 一定大于重启前的，客户端带重启前的 id 重连会收到 resync。
+ */
+@Service
+@ConditionalOnProperty(name = "notification.bus.type", havingValue = "local", matchIfMissing = true)
+public class LocalNotificationBus implements NotificationBus {
+
+    private final NotificationService notificationService;
+    private long lastEventId = System.currentTimeMillis() * 1000;
+
+    public LocalNotificationBus(NotificationService notificationService) {
+        this.notificationService = notificationService;
+    }
+
+    @Override
+    public synchronized void publish(String recipient, String event, Map<String, ?> payload) {
+        long id = ++lastEventId;
+        if (recipient == null) {
+            notificationService.notifyAllUsers(id, event, payload);
+        } else {
+            notificationService.notifyUser(id, recipient, event, payload);
+        }
+    }
+}
@@ -1,154 +1,361 @@
 package org.example.accounting.service.impl;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.example.accounting.service.NotificationService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
 import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter.DataWithMediaType;
 import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import jakarta.annotation.PostConstruct;
 import jakarta.annotation.PreDestroy;
-import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * 基于 SSE 的通知实现。
  * 管理 SseEmitter 连接并支持向指定用户或广播发送事件。
+ * 发送是异步的：每个连接有自己的有界发送队列（见 {@link SseConnection}），由调度线程池排空，
+ * 调用方（通常位于事务方法内）只负责入队，不会被慢客户端阻塞；队列溢出的连接会被断开。
+ * 每个事件只序列化一次：预先编码为完整的 SSE 帧字节，所有连接共享同一份字节写出。
+ * 心跳由 {@link HeartbeatWheel} 调度，只发给空闲满一个间隔的连接。
+ * 业务事件的 id 由通知总线分配（{@link org.example.accounting.service.NotificationBus}，jdbc 总线即消息表主键），
+ * 所有节点共用同一 id 空间且按 id 顺序推送；事件保留在广播与按用户的环形缓冲（{@link EventRing}）中，
+ * 客户端携带 Last-Event-ID 重连到任一节点时补发错过的事件；本节点没有所需的事件（缓冲已溢出、
+ * 客户端的位置早于本节点开始接收的位置）时改发 {@code resync} 事件让客户端整体刷新。
+ * 没有连接且超过 replay-ttl 未写入的用户缓冲会在推送时被回收，之后该用户更早位置的重连改发 resync。
+ * 连接建立时的 {@code connected} 事件与补发事件走同一个发送队列，保证先于补发事件写出。
+ * 订阅时可指定 topics（事件类型集合），广播按 事件类型 -> 连接 的索引只投递给订阅了该类型的连接；
+ * 控制事件（connected/ping/resync）不受过滤。
  */
 @Service
 public class NotificationServiceImpl implements NotificationService {
 
-    // 用户 -> 该用户的 emitters 列表
-    private final ConcurrentHashMap<String, CopyOnWriteArrayList<SseEmitter>> emittersByUser = new ConcurrentHashMap<>();
-    // 全局广播订阅（未指定 user 的订阅会放这里）
-    private final CopyOnWriteArrayList<SseEmitter> globalEmitters = new CopyOnWriteArrayList<>();
+    // 用户 -> 该用户的连接列表
+    private final ConcurrentHashMap<String, CopyOnWriteArrayList<SseConnection>> emittersByUser = new ConcurrentHashMap<>();
+    // 广播索引：未指定 topics 的连接接收全部广播；指定了 topics 的连接按事件类型建索引，广播只触达感兴趣的连接
+    private final CopyOnWriteArrayList<SseConnection> unfilteredEmitters = new CopyOnWriteArrayList<>();
+    private final ConcurrentHashMap<String, CopyOnWriteArrayList<SseConnection>> emittersByTopic = new ConcurrentHashMap<>();
+    // emitter -> 连接，用于注销时定位
+    private final ConcurrentHashMap<SseEmitter, SseConnection> connections = new ConcurrentHashMap<>();
     private static final org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(NotificationServiceImpl.class);
-    private final ScheduledExecutorService heartbeatScheduler = Executors.newSingleThreadScheduledExecutor(r -> {
-        Thread t = new Thread(r, "sse-heartbeat");
-        t.setDaemon(true);
-        return t;
-    });
+    private final ExecutorService dispatcher;
+    private final int queueCapacity;
+    private final ObjectMapper objectMapper;
+    private final HeartbeatWheel heartbeatWheel;
+    // 发布与注册互斥：保证“补发 + 加入在线列表”与新事件之间不漏发、不重发且有序
+    private final ReentrantLock publishLock = new ReentrantLock();
+    // 本节点最后推送的事件 id；eventFloor 为本节点收到第一个事件前的位置，更早的事件本节点没有，0 表示尚未收到事件
+    private long lastEventId;
+    private long eventFloor;
+    private final int replayCapacity;
+    private final EventRing broadcastRing;
+    private final Map<String, EventRing> userRings = new ConcurrentHashMap<>();
+    private final long replayTtlMillis;
+    // 已回收的用户缓冲中最大的事件 id：没有缓冲的用户从更早的位置重连时，无法确认错过的事件是否还在
+    private long evictedUserEventsUpTo;
+    private long lastRingSweep;
+
+    public NotificationServiceImpl(ObjectMapper objectMapper,
+                                   @Value("${notification.sse.dispatcher-threads:4}") int dispatcherThreads,
+                                   @Value("${notification.sse.queue-capacity:256}") int queueCapacity,
+                                   @Value("${notification.sse.heartbeat-interval-seconds:20}") int heartbeatSeconds,
+                                   @Value("${notification.sse.heartbeat-shards:2}") int heartbeatShards,
+                                   @Value("${notification.sse.replay-capacity:256}") int replayCapacity,
+                                   @Value("${notification.sse.replay-ttl-seconds:600}") long replayTtlSeconds) {
+        AtomicInteger seq = new AtomicInteger();
+        this.dispatcher = Executors.newFixedThreadPool(Math.max(1, dispatcherThreads), r -> {
+            Thread t = new Thread(r, "sse-dispatch-" + seq.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        this.queueCapacity = Math.max(1, queueCapacity);
+        this.objectMapper = objectMapper;
+        this.heartbeatWheel = new HeartbeatWheel(heartbeatShards, TimeUnit.SECONDS.toMillis(Math.max(1, heartbeatSeconds)),
+                1000L, this::sendHeartbeat);
+        this.replayCapacity = replayCapacity;
+        this.broadcastRing = new EventRing(replayCapacity);
+        this.replayTtlMillis = TimeUnit.SECONDS.toMillis(Math.max(1, replayTtlSeconds));
+    }
 
     @Override
     public SseEmitter registerEmitter(String username) {
+        return registerEmitter(username, null);
+    }
+
+    @Override
+    public SseEmitter registerEmitter(String username, String lastEventId) {
+        return registerEmitter(username, lastEventId, null);
+    }
+
+    @Override
+    public SseEmitter registerEmitter(String username, String lastEventId, Set<String> topics) {
         SseEmitter emitter = new SseEmitter(30 * 60 * 1000L); // 30 minutes
+        String key = (username == null || username.isBlank()) ? null : username;
+        SseConnection connection = new SseConnection(key, topics, emitter, queueCapacity, dispatcher,
+                c -> unregisterEmitter(c.getUsername(), c.getEmitter()));
         // 注册回调：完成/超时/出错时移除
         emitter.onCompletion(() -> unregisterEmitter(username, emitter));
         emitter.onTimeout(() -> unregisterEmitter(username, emitter));
         emitter.onError((ex) -> unregisterEmitter(username, emitter));
 
-        if (username == null || username.isBlank()) {
-            globalEmitters.add(emitter);
-        } else {
-            emittersByUser.computeIfAbsent(username, k -> new CopyOnWriteArrayList<>()).add(emitter);
+        Long since = parseEventId(lastEventId);
+        Set<DataWithMediaType> connected = encode(null, "connected", java.util.Collections.singletonMap("ts", Instant.now().toString()));
+        publishLock.lock();
+        try {
+            if (connected != null) {
+                enqueue(connection, connected);
+            }
+            if (since != null) {
+                replay(connection, since);
+            }
+            connections.put(emitter, connection);
+            if (key != null) {
+                emittersByUser.computeIfAbsent(key, k -> new CopyOnWriteArrayList<>()).add(connection);
+            }
+            if (connection.getTopics() == null) {
+                unfilteredEmitters.add(connection);
+            } else {
+                for (String topic : connection.getTopics()) {
+                    emittersByTopic.computeIfAbsent(topic, k -> new CopyOnWriteArrayList<>()).add(connection);
+                }
+            }
+        } finally {
+            publishLock.unlock();
         }
-        logger.info("SSE registered for user={}, emittersGlobal={}, usersWithEmitters={}", username, globalEmitters.size(), emittersByUser.size());
+        heartbeatWheel.add(connection);
+        logger.info("SSE registered for user={}, topics={}, connections={}, usersWithEmitters={}", username, topics, connections.size(), emittersByUser.size());
         return emitter;
     }
 
     @PostConstruct
     public void startHeartbeat() {
-        // send heartbeat every 20 seconds to keep proxies from closing idle connections
-        heartbeatScheduler.scheduleAtFixedRate(this::sendHeartbeat, 20, 20, TimeUnit.SECONDS);
-        logger.info("Started SSE heartbeat scheduler");
+        // heartbeat connections that have been idle for the interval, to keep proxies from closing them
+        heartbeatWheel.start();
+        logger.info("Started SSE heartbeat wheel");
     }
 
     @PreDestroy
     public void stopHeartbeat() {
         try {
-            heartbeatScheduler.shutdownNow();
+            heartbeatWheel.stop();
+            dispatcher.shutdownNow();
         } catch (Exception ignored) {}
-        logger.info("Stopped SSE heartbeat scheduler");
-    }
-
-    private void sendHeartbeat() {
-        Map<String, Object> payload = java.util.Collections.singletonMap("ts", Instant.now().toString());
-        // global
-        for (SseEmitter emitter : globalEmitters) {
-            try {
-                emitter.send(SseEmitter.event().name("ping").data(payload));
-            } catch (IOException e) {
-                logger.debug("Heartbeat send failed to global emitter, unregistering", e);
-                unregisterEmitter(null, emitter);
-            } catch (IllegalStateException e) {
-                logger.debug("Heartbeat illegal state, unregistering emitter", e);
-                unregisterEmitter(null, emitter);
-            }
-        }
-        // per-user
-        for (Map.Entry<String, CopyOnWriteArrayList<SseEmitter>> entry : emittersByUser.entrySet()) {
-            String user = entry.getKey();
-            for (SseEmitter emitter : entry.getValue()) {
-                try {
-                    emitter.send(SseEmitter.event().name("ping").data(payload));
-                } catch (IOException e) {
-                    logger.debug("Heartbeat send failed to user={} emitter, unregistering", user, e);
-                    unregisterEmitter(user, emitter);
-                } catch (IllegalStateException e) {
-                    logger.debug("Heartbeat illegal state for user={}, unregistering emitter", user, e);
-                    unregisterEmitter(user, emitter);
-                }
-            }
+        logger.info("Stopped SSE heartbeat wheel");
+    }
+
+    /**
+     * 时间轮回调：向一个 tick 内到期的空闲连接发送心跳。
+     */
+    private void sendHeartbeat(List<SseConnection> idle) {
+        Set<DataWithMediaType> frame = encode(null, "ping", java.util.Collections.singletonMap("ts", Instant.now().toString()));
+        if (frame == null) return;
+        for (SseConnection connection : idle) {
+            enqueue(connection, frame);
         }
     }
 
     @Override
     public void unregisterEmitter(String username, SseEmitter emitter) {
-        if (username == null || username.isBlank()) {
-            globalEmitters.remove(emitter);
-        } else {
-            List<SseEmitter> list = emittersByUser.get(username);
-            if (list != null) {
-                list.remove(emitter);
-                if (list.isEmpty()) emittersByUser.remove(username);
+        SseConnection connection = connections.remove(emitter);
+        if (connection != null) {
+            connection.close();
+            if (connection.getUsername() != null) {
+                removeFrom(emittersByUser, connection.getUsername(), connection);
+            }
+            if (connection.getTopics() == null) {
+                unfilteredEmitters.remove(connection);
+            } else {
+                for (String topic : connection.getTopics()) {
+                    removeFrom(emittersByTopic, topic, connection);
+                }
             }
         }
         try { emitter.complete(); } catch (Exception ignored) {}
     }
 
+    private static void removeFrom(ConcurrentHashMap<String, CopyOnWriteArrayList<SseConnection>> index,
+                                   String key, SseConnection connection) {
+        List<SseConnection> list = index.get(key);
+        if (list != null) {
+            list.remove(connection);
+            if (list.isEmpty()) index.remove(key, list);
+        }
+    }
+
     @Override
-    public void notifyUser(String username, String event, Map<String, ?> payload) {
+    public void notifyUser(Long eventId, String username, String event, Map<String, ?> payload) {
         if (username == null) return;
-        List<SseEmitter> list = emittersByUser.get(username);
-        if (list == null || list.isEmpty()) return;
-        for (SseEmitter emitter : list) {
-            try {
-                SseEmitter.SseEventBuilder ev = SseEmitter.event().name(event).data(payload);
-                emitter.send(ev);
-            } catch (IOException e) {
-                unregisterEmitter(username, emitter);
+        publishLock.lock();
+        try {
+            Long id = record(eventId);
+            Set<DataWithMediaType> frame = encode(id, event, payload);
+            if (frame == null) return;
+            if (id != null) {
+                evictIdleRings();
+                userRings.computeIfAbsent(username, k -> new EventRing(replayCapacity, evictedUserEventsUpTo)).append(id, event, frame);
             }
+            List<SseConnection> list = emittersByUser.get(username);
+            if (list == null) return;
+            for (SseConnection connection : list) {
+                if (connection.accepts(event)) {
+                    enqueue(connection, frame);
+                }
+            }
+        } finally {
+            publishLock.unlock();
         }
     }
 
     @Override
-    public void notifyAllUsers(String event, Map<String, ?> payload) {
-        // 先发送给全局订阅者
-        for (SseEmitter emitter : globalEmitters) {
-            try {
-                SseEmitter.SseEventBuilder ev = SseEmitter.event().name(event).data(payload);
-                emitter.send(ev);
-            } catch (IOException e) {
-                unregisterEmitter(null, emitter);
+    public void notifyAllUsers(Long eventId, String event, Map<String, ?> payload) {
+        publishLock.lock();
+        try {
+            Long id = record(eventId);
+            Set<DataWithMediaType> frame = encode(id, event, payload);
+            if (frame == null) return;
+            if (id != null) {
+                broadcastRing.append(id, event, frame);
             }
-        }
-        // 再发送给所有按用户订阅的连接
-        for (Map.Entry<String, CopyOnWriteArrayList<SseEmitter>> entry : emittersByUser.entrySet()) {
-            for (SseEmitter emitter : entry.getValue()) {
-                try {
-                    SseEmitter.SseEventBuilder ev = SseEmitter.event().name(event).data(payload);
-                    emitter.send(ev);
-                } catch (IOException e) {
-                    unregisterEmitter(entry.getKey(), emitter);
+            // 先发送给未过滤的订阅者
+            for (SseConnection connection : unfilteredEmitters) {
+                enqueue(connection, frame);
+            }
+            // 再发送给订阅了该事件类型的连接
+            List<SseConnection> subscribers = emittersByTopic.get(event);
+            if (subscribers != null) {
+                for (SseConnection connection : subscribers) {
+                    enqueue(connection, frame);
                 }
             }
+        } finally {
+            publishLock.unlock();
+        }
+    }
+
+    /**
+     * 推进本节点的事件位置，返回可写入缓冲与 id 行的事件 id。
+     * 不大于当前位置的 id（总线乱序）只实时推送、不进缓冲，避免补发顺序与 id 不一致。调用方持有 publishLock。
+     */
+    private Long record(Long eventId) {
+        if (eventId == null) return null;
+        if (eventId <= lastEventId) {
+            logger.debug("SSE event id {} is not after {}, delivering without replay", eventId, lastEventId);
+            return null;
+        }
+        if (lastEventId == 0) {
+            eventFloor = eventId - 1;
+        }
+        lastEventId = eventId;
+        return eventId;
+    }
+
+    /**
+     * 回收没有连接且超过 replay-ttl 未写入的用户缓冲，最多每半个 TTL 扫描一次。调用方持有 publishLock。
+     */
+    private void evictIdleRings() {
+        long now = System.currentTimeMillis();
+        if (now - lastRingSweep < replayTtlMillis / 2) return;
+        lastRingSweep = now;
+        userRings.entrySet().removeIf(e -> {
+            EventRing ring = e.getValue();
+            if (emittersByUser.containsKey(e.getKey()) || now - ring.lastAppendMillis() <= replayTtlMillis) {
+                return false;
+            }
+            evictedUserEventsUpTo = Math.max(evictedUserEventsUpTo, ring.lastId());
+            return true;
+        });
+    }
+
+    /**
+     * 补发 ID 大于 since 的广播事件与该连接用户的事件（按 ID 升序）；
+     * 本节点没有所需的事件时改发 resync。调用方持有 publishLock。
+     */
+    private void replay(SseConnection connection, long since) {
+        // 客户端已收到本节点尚未轮询到的事件（其他节点领先）：无需补发，之后的事件照常推送
+        if (lastEventId != 0 && since >= lastEventId) return;
+        EventRing userRing = connection.getUsername() == null ? null : userRings.get(connection.getUsername());
+        // 本节点尚未收到事件、客户端位置早于本节点开始接收的位置，或缓冲已覆盖掉需要的事件
+        boolean userCovered = userRing != null ? userRing.covers(since)
+                : connection.getUsername() == null || since >= evictedUserEventsUpTo;
+        if (lastEventId == 0 || since < eventFloor || !broadcastRing.covers(since) || !userCovered) {
+            Set<DataWithMediaType> frame = encode(null, "resync", java.util.Collections.singletonMap("lastEventId", String.valueOf(lastEventId)));
+            if (frame != null) enqueue(connection, frame);
+            return;
+        }
+        List<EventRing.Entry> missed = new ArrayList<>();
+        broadcastRing.collectAfter(since, missed);
+        if (userRing != null) {
+            userRing.collectAfter(since, missed);
+            missed.sort(Comparator.comparingLong(EventRing.Entry::id));
+        }
+        for (EventRing.Entry entry : missed) {
+            if (connection.accepts(entry.type())) {
+                enqueue(connection, entry.frame());
+            }
         }
     }
-}
 
+    /**
+     * 解析客户端的 Last-Event-ID（总线分配的数字 id）；为空返回 null。
+     * 无法识别的 id（如旧版本的 {@code <节点纪元>-<序号>} 格式）返回 -1，按位置未知处理，触发 resync。
+     */
+    private Long parseEventId(String lastEventId) {
+        if (lastEventId == null || lastEventId.isBlank()) return null;
+        try {
+            return Long.valueOf(lastEventId.trim());
+        } catch (NumberFormatException e) {
+            return -1L;
+        }
+    }
+
+    /**
+     * 把事件编码为完整的 SSE 帧（{@code id:...\nevent:...\ndata:...\n\n}）字节，供所有连接共享；
+     * id 为空时不写 id 行（如心跳，不影响客户端的 Last-Event-ID）。
+     * Jackson 输出为单行 JSON，无需按行拆分 data 字段。序列化失败返回 null。
+     */
+    private Set<DataWithMediaType> encode(Long id, String event, Object payload) {
+        try {
+            byte[] json = objectMapper.writeValueAsBytes(payload);
+            byte[] head = ((id != null ? "id:" + id + "\n" : "") + "event:" + event + "\ndata:").getBytes(StandardCharsets.UTF_8);
+            byte[] frame = new byte[head.length + json.length + 2];
+            System.arraycopy(head, 0, frame, 0, head.length);
+            System.arraycopy(json, 0, frame, head.length, json.length);
+            frame[frame.length - 2] = '\n';
+            frame[frame.length - 1] = '\n';
+            return Set.of(new DataWithMediaType(frame, MediaType.TEXT_EVENT_STREAM));
+        } catch (JsonProcessingException e) {
+            logger.warn("Failed to serialize SSE event={}", event, e);
+            return null;
+        }
+    }
 
+    /**
+     * 事件入队；队列溢出（慢客户端）时断开该连接，由客户端自行重连。
+     */
+    private void enqueue(SseConnection connection, Set<DataWithMediaType> event) {
+        try {
+            if (!connection.enqueue(event) && !connection.isClosed()) {
+                logger.info("SSE queue overflow for user={}, disconnecting slow consumer", connection.getUsername());
+                unregisterEmitter(connection.getUsername(), connection.getEmitter());
+            }
+        } catch (RejectedExecutionException e) {
+            logger.debug("SSE dispatcher rejected task (shutting down?)", e);
+        }
+    }
+}
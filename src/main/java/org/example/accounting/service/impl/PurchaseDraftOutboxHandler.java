@@ -0,0 +1,89 @@
+package org.example.accounting.service.impl;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import org.example.accounting.domain.PurchaseOrder;
+import org.example.accounting.domain.PurchaseStatus;
+import org.example.accounting.repository.PurchaseOrderRepository;
+import org.example.accounting.repository.TransactionDraftRepository;
+import org.example.accounting.service.OutboxHandler;
+import org.example.accounting.service.OutboxService;
+import org.example.accounting.service.TransactionDraftService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+/**
+ * 采购单审批通过后生成交易草稿，负载为单个 purchaseOrderId 或批量审核的 purchaseOrderIds。
+ * 审批事务只写入发件箱消息，草稿在后台批量生成：同一轮取出的多条消息合并为一次生成，审批耗时与草稿生成无关。
+ * 已存在草稿的采购单跳过（重投时保持幂等）。
+ */
+@Component
+public class PurchaseDraftOutboxHandler implements OutboxHandler {
+
+    private static final Logger log = LoggerFactory.getLogger(PurchaseDraftOutboxHandler.class);
+
+    private final PurchaseOrderRepository orderRepository;
+    private final TransactionDraftRepository draftRepository;
+    private final TransactionDraftService transactionDraftService;
+
+    public PurchaseDraftOutboxHandler(PurchaseOrderRepository orderRepository,
+                                      TransactionDraftRepository draftRepository,
+                                      TransactionDraftService transactionDraftService) {
+        this.orderRepository = orderRepository;
+        this.draftRepository = draftRepository;
+        this.transactionDraftService = transactionDraftService;
+    }
+
+    @Override
+    public String type() {
+        return OutboxService.PURCHASE_DRAFT;
+    }
+
+    @Override
+    public boolean batched() {
+        return true;
+    }
+
+    @Override
+    public void handle(JsonNode payload) {
+        handleBatch(List.of(payload));
+    }
+
+    /**
+     * 合并多条消息的采购单 ID，过滤掉已有草稿或已不是通过状态的采购单后一次生成全部草稿。
+     */
+    @Override
+    public void handleBatch(List<JsonNode> payloads) {
+        Set<Long> ids = new LinkedHashSet<>();
+        for (JsonNode payload : payloads) {
+            if (payload.has("purchaseOrderId")) {
+                ids.add(payload.get("purchaseOrderId").asLong());
+            }
+            for (JsonNode id : payload.path("purchaseOrderIds")) {
+                ids.add(id.asLong());
+            }
+        }
+        if (ids.isEmpty()) {
+            return;
+        }
+        ids.removeAll(draftRepository.findExistingPurchaseOrderIds(ids));
+        if (ids.isEmpty()) {
+            return;
+        }
+        List<PurchaseOrder> orders = new ArrayList<>();
+        for (PurchaseOrder order : orderRepository.findAllById(ids)) {
+            if (order.getStatus() == PurchaseStatus.APPROVED) {
+                orders.add(order);
+            } else {
+                log.info("采购单已不是通过状态，跳过生成草稿: orderId={}", order.getId());
+            }
+        }
+        if (!orders.isEmpty()) {
+            transactionDraftService.createDraftsFromPurchases(orders);
+        }
+    }
+}
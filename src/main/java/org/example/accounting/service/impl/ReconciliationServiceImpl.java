@@ -7,6 +7,7 @@ import java.util.List;
 import org.example.accounting.domain.Transaction;
 import org.example.accounting.exception.BusinessException;
 import org.example.accounting.repository.TransactionRepository;
+import org.example.accounting.service.ChangeSequenceService;
 import org.example.accounting.service.ReconciliationReport;
 import org.example.accounting.service.ReconciliationService;
 import org.springframework.stereotype.Service;
@@ -20,9 +21,12 @@ import org.springframework.transaction.annotation.Transactional;
 public class ReconciliationServiceImpl implements ReconciliationService {
 
     private final TransactionRepository transactionRepository;
+    private final ChangeSequenceService changeSequenceService;
 
-    public ReconciliationServiceImpl(TransactionRepository transactionRepository) {
+    public ReconciliationServiceImpl(TransactionRepository transactionRepository,
+                                     ChangeSequenceService changeSequenceService) {
         this.transactionRepository = transactionRepository;
+        this.changeSequenceService = changeSequenceService;
     }
 
     @Override
@@ -31,6 +35,8 @@ public class ReconciliationServiceImpl implements ReconciliationService {
         Transaction transaction = transactionRepository.findById(transactionId)
                 .orElseThrow(() -> new BusinessException("交易不存在: " + transactionId));
         transaction.setCleared(true);
+        // 与 TransactionService 的写入一样取变更序号，变更拉取与检索索引同步才能看到这次核对
+        transaction.setChangeSeq(changeSequenceService.next(ChangeSequenceService.TRANSACTIONS));
         transactionRepository.save(transaction);
     }
 
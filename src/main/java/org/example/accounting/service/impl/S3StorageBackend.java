@@ -0,0 +1,213 @@
+package org.example.accounting.service.impl;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.HexFormat;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import org.example.accounting.service.StorageBackend;
+
+/**
+ * S3 兼容对象存储后端（AWS S3、MinIO、Ceph RGW 等）。
+ * 直接用 JDK HttpClient 发起 path-style 请求（{endpoint}/{bucket}/{key}）并做 AWS Signature V4 签名，
+ * 请求体不参与签名（UNSIGNED-PAYLOAD），上传直接从文件流式发送，下载以流的形式返回，不在内存中缓冲对象。
+ * 上传带 {@code If-None-Match: *}，对象已存在时不覆盖。
+ */
+public class S3StorageBackend implements StorageBackend {
+
+    private static final String UNSIGNED_PAYLOAD = "UNSIGNED-PAYLOAD";
+    private static final String SIGNED_HEADERS = "host;x-amz-content-sha256;x-amz-date";
+    private static final DateTimeFormatter AMZ_DATE = DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmss'Z'");
+    private static final Duration REQUEST_TIMEOUT = Duration.ofMinutes(10);
+
+    private final String endpoint;
+    private final String region;
+    private final String bucket;
+    private final String accessKey;
+    private final String secretKey;
+    private final HttpClient client;
+
+    public S3StorageBackend(String endpoint, String region, String bucket, String accessKey, String secretKey) {
+        this.endpoint = endpoint.endsWith("/") ? endpoint.substring(0, endpoint.length() - 1) : endpoint;
+        this.region = region;
+        this.bucket = bucket;
+        this.accessKey = accessKey;
+        this.secretKey = secretKey;
+        this.client = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofSeconds(10))
+                .followRedirects(HttpClient.Redirect.NEVER)
+                .build();
+    }
+
+    @Override
+    public boolean put(String key, Path source) throws IOException {
+        HttpRequest request = signed("PUT", key)
+                .header("If-None-Match", "*")
+                .PUT(HttpRequest.BodyPublishers.ofFile(source))
+                .build();
+        HttpResponse<String> response = send(request, HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() == 412) {
+            return false;
+        }
+        check(response.statusCode(), "PUT", key, response.body());
+        return true;
+    }
+
+    @Override
+    public InputStream open(String key) throws IOException {
+        return get(key, signed("GET", key).GET().build(), 0);
+    }
+
+    @Override
+    public InputStream open(String key, long start, long count) throws IOException {
+        if (count <= 0) {
+            return InputStream.nullInputStream();
+        }
+        HttpRequest request = signed("GET", key)
+                .header("Range", "bytes=" + start + "-" + (start + count - 1))
+                .GET()
+                .build();
+        return get(key, request, start);
+    }
+
+    private InputStream get(String key, HttpRequest request, long start) throws IOException {
+        HttpResponse<InputStream> response = send(request, HttpResponse.BodyHandlers.ofInputStream());
+        int status = response.statusCode();
+        if (status == 200 || status == 206) {
+            InputStream body = response.body();
+            if (status == 200 && start > 0) {
+                // 服务端忽略了 Range
+                body.skipNBytes(start);
+            }
+            return body;
+        }
+        String detail;
+        try (InputStream body = response.body()) {
+            detail = new String(body.readNBytes(1024), StandardCharsets.UTF_8);
+        }
+        if (status == 404) {
+            throw new NoSuchFileException(key);
+        }
+        check(status, "GET", key, detail);
+        return InputStream.nullInputStream();
+    }
+
+    @Override
+    public long size(String key) throws IOException {
+        HttpRequest request = signed("HEAD", key)
+                .method("HEAD", HttpRequest.BodyPublishers.noBody())
+                .build();
+        HttpResponse<Void> response = send(request, HttpResponse.BodyHandlers.discarding());
+        if (response.statusCode() == 404) {
+            return -1;
+        }
+        check(response.statusCode(), "HEAD", key, "");
+        return response.headers().firstValueAsLong("Content-Length").orElse(-1);
+    }
+
+    @Override
+    public void delete(String key) throws IOException {
+        HttpRequest request = signed("DELETE", key).DELETE().build();
+        HttpResponse<String> response = send(request, HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() != 404) {
+            check(response.statusCode(), "DELETE", key, response.body());
+        }
+    }
+
+    /**
+     * 构造带 SigV4 签名头的请求。
+     */
+    private HttpRequest.Builder signed(String method, String key) {
+        URI uri = URI.create(endpoint + "/" + encode(bucket) + "/" + encodeKey(key));
+        String amzDate = AMZ_DATE.format(ZonedDateTime.now(ZoneOffset.UTC));
+        String date = amzDate.substring(0, 8);
+        String host = uri.getPort() == -1 ? uri.getHost() : uri.getHost() + ":" + uri.getPort();
+        String canonicalRequest = method + "\n"
+                + uri.getRawPath() + "\n"
+                + "\n"
+                + "host:" + host + "\n"
+                + "x-amz-content-sha256:" + UNSIGNED_PAYLOAD + "\n"
+                + "x-amz-date:" + amzDate + "\n"
+                + "\n"
+                + SIGNED_HEADERS + "\n"
+                + UNSIGNED_PAYLOAD;
+        String scope = date + "/" + region + "/s3/aws4_request";
+        String stringToSign = "AWS4-HMAC-SHA256\n" + amzDate + "\n" + scope + "\n" + sha256Hex(canonicalRequest);
+        byte[] signingKey = hmac(hmac(hmac(hmac(
+                ("AWS4" + secretKey).getBytes(StandardCharsets.UTF_8), date), region), "s3"), "aws4_request");
+        String signature = HexFormat.of().formatHex(hmac(signingKey, stringToSign));
+        return HttpRequest.newBuilder(uri)
+                .timeout(REQUEST_TIMEOUT)
+                .header("x-amz-date", amzDate)
+                .header("x-amz-content-sha256", UNSIGNED_PAYLOAD)
+                .header("Authorization", "AWS4-HMAC-SHA256 Credential=" + accessKey + "/" + scope
+                        + ", SignedHeaders=" + SIGNED_HEADERS + ", Signature=" + signature);
+    }
+
+    private <T> HttpResponse<T> send(HttpRequest request, HttpResponse.BodyHandler<T> handler) throws IOException {
+        try {
+            return client.send(request, handler);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("对象存储请求被中断: " + request.uri());
+        }
+    }
+
+    private static void check(int status, String method, String key, String detail) throws IOException {
+        if (status < 200 || status >= 300) {
+            throw new IOException("对象存储 " + method + " " + key + " 失败: HTTP " + status
+                    + (detail == null || detail.isEmpty() ? "" : " " + detail));
+        }
+    }
+
+    /**
+     * 按 SigV4 规则逐段编码对象键（保留分隔符 /）。
+     */
+    private static String encodeKey(String key) {
+        StringBuilder sb = new StringBuilder(key.length() + 16);
+        for (String segment : key.split("/", -1)) {
+            if (sb.length() > 0) sb.append('/');
+            sb.append(encode(segment));
+        }
+        return sb.toString();
+    }
+
+    private static String encode(String value) {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8)
+                .replace("+", "%20").replace("*", "%2A").replace("%7E", "~");
+    }
+
+    private static String sha256Hex(String value) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(value.getBytes(StandardCharsets.UTF_8)));
+        } catch (GeneralSecurityException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    private static byte[] hmac(byte[] key, String data) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(key, "HmacSHA256"));
+            return mac.doFinal(data.getBytes(StandardCharsets.UTF_8));
+        } catch (GeneralSecurityException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package org.example.accounting.service.impl;
+
+import java.io.IOException;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter.DataWithMediaType;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+/**
+ * 单个 SSE 连接及其有界发送队列。
+ * 调用方只把事件放入队列后立即返回；队列由调度线程池异步排空，同一连接同一时刻最多只有一个排空任务，
+ * 保证事件按入队顺序写出。队列满说明客户端消费过慢，连接会被断开（由客户端自动重连）。
+ */
+final class SseConnection {
+
+    /**
+     * 单次排空任务最多写出的事件数，避免一个繁忙连接长期占用调度线程。
+     */
+    private static final int DRAIN_BATCH = 64;
+
+    private final String username;
+    // 订阅的事件类型；为 null 表示接收全部事件
+    private final Set<String> topics;
+    private final SseEmitter emitter;
+    private final BlockingQueue<Set<DataWithMediaType>> queue;
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+    private final AtomicBoolean closed = new AtomicBoolean();
+    private volatile long lastActivity = System.currentTimeMillis();
+    private final Executor dispatcher;
+    private final Consumer<SseConnection> onBroken;
+
+    /**
+     * @param topics     订阅的事件类型，为空表示全部
+     * @param capacity   发送队列容量
+     * @param dispatcher 排空队列的调度线程池
+     * @param onBroken   写出失败时的回调（通常为注销该连接）
+     */
+    SseConnection(String username, Set<String> topics, SseEmitter emitter, int capacity, Executor dispatcher,
+            Consumer<SseConnection> onBroken) {
+        this.username = username;
+        this.topics = (topics == null || topics.isEmpty()) ? null : Set.copyOf(topics);
+        this.emitter = emitter;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.dispatcher = dispatcher;
+        this.onBroken = onBroken;
+    }
+
+    String getUsername() {
+        return username;
+    }
+
+    Set<String> getTopics() {
+        return topics;
+    }
+
+    /**
+     * 是否订阅了该事件类型。
+     */
+    boolean accepts(String event) {
+        return topics == null || topics.contains(event);
+    }
+
+    SseEmitter getEmitter() {
+        return emitter;
+    }
+
+    /**
+     * 最近一次成功写出的时间（毫秒），供空闲心跳判断。
+     */
+    long getLastActivity() {
+        return lastActivity;
+    }
+
+    boolean isClosed() {
+        return closed.get();
+    }
+
+    /**
+     * 事件入队并确保有排空任务在运行。
+     *
+     * @return false 表示队列已满或连接已关闭，调用方应注销该连接
+     */
+    boolean enqueue(Set<DataWithMediaType> event) {
+        if (closed.get() || !queue.offer(event)) {
+            return false;
+        }
+        schedule();
+        return true;
+    }
+
+    /**
+     * 标记关闭并丢弃未发送的事件；返回 true 表示本次调用完成了关闭。
+     */
+    boolean close() {
+        if (!closed.compareAndSet(false, true)) {
+            return false;
+        }
+        queue.clear();
+        return true;
+    }
+
+    private void schedule() {
+        if (scheduled.compareAndSet(false, true)) {
+            try {
+                dispatcher.execute(this::drain);
+            } catch (RejectedExecutionException ex) {
+                scheduled.set(false);
+                throw ex;
+            }
+        }
+    }
+
+    /**
+     * 排空队列；写出失败（客户端断开、连接已完成）时回调 onBroken 并停止。
+     */
+    private void drain() {
+        try {
+            for (int i = 0; i < DRAIN_BATCH && !closed.get(); i++) {
+                Set<DataWithMediaType> event = queue.poll();
+                if (event == null) break;
+                try {
+                    emitter.send(event);
+                    lastActivity = System.currentTimeMillis();
+                } catch (IOException | IllegalStateException ex) {
+                    onBroken.accept(this);
+                    return;
+                }
+            }
+        } finally {
+            scheduled.set(false);
+        }
+        // 排空期间可能有新事件入队，或本批未写完
+        if (!closed.get() && !queue.isEmpty()) {
+            schedule();
+        }
+    }
+}
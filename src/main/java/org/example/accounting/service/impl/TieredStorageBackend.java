@@ -0,0 +1,171 @@
+package org.example.accounting.service.impl;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.example.accounting.service.StorageBackend;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * 分层存储后端：新文件写入本地热层（SSD），超过 coldAfter 未修改的文件由后台任务迁移到冷层（对象存储）。
+ * 读取时先查本地再查冷层，只依赖文件系统与对象存储本身，不需要在数据库中记录文件所在层。
+ * 迁移顺序为“上传冷层 → 校验大小 → 删除本地”，任一时刻至少有一份可读副本；
+ * 迁移期间文件被删除（引用归零）时，会清理刚上传的冷层副本。
+ * 冷层的 put 不应移走源文件（对象存储后端满足该约束）。
+ */
+public class TieredStorageBackend implements StorageBackend {
+
+    private static final Logger log = LoggerFactory.getLogger(TieredStorageBackend.class);
+
+    private final LocalStorageBackend hot;
+    private final StorageBackend cold;
+    private final Duration coldAfter;
+    private final ScheduledExecutorService migrator = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "storage-tier-migrator");
+        t.setDaemon(true);
+        t.setPriority(Thread.MIN_PRIORITY);
+        return t;
+    });
+
+    public TieredStorageBackend(LocalStorageBackend hot, StorageBackend cold, Duration coldAfter) {
+        this.hot = hot;
+        this.cold = cold;
+        this.coldAfter = coldAfter;
+    }
+
+    /**
+     * 启动后台迁移，每 interval 扫描一次热层。
+     */
+    public void start(Duration interval) {
+        long millis = Math.max(1000, interval.toMillis());
+        migrator.scheduleWithFixedDelay(() -> {
+            try {
+                int moved = migrate();
+                if (moved > 0) {
+                    log.info("已迁移 {} 个文件到冷层", moved);
+                }
+            } catch (Exception ex) {
+                log.warn("冷层迁移失败", ex);
+            }
+        }, millis, millis, TimeUnit.MILLISECONDS);
+    }
+
+    public void close() {
+        migrator.shutdownNow();
+    }
+
+    @Override
+    public boolean put(String key, Path source) throws IOException {
+        return hot.put(key, source);
+    }
+
+    @Override
+    public InputStream open(String key) throws IOException {
+        try {
+            return hot.open(key);
+        } catch (NoSuchFileException ex) {
+            return cold.open(key);
+        }
+    }
+
+    @Override
+    public InputStream open(String key, long start, long count) throws IOException {
+        try {
+            return hot.open(key, start, count);
+        } catch (NoSuchFileException ex) {
+            return cold.open(key, start, count);
+        }
+    }
+
+    @Override
+    public long size(String key) throws IOException {
+        long size = hot.size(key);
+        return size >= 0 ? size : cold.size(key);
+    }
+
+    @Override
+    public boolean exists(String key) throws IOException {
+        return hot.localPath(key) != null || cold.exists(key);
+    }
+
+    @Override
+    public void delete(String key) throws IOException {
+        hot.delete(key);
+        cold.delete(key);
+    }
+
+    @Override
+    public Path localPath(String key) {
+        return hot.localPath(key);
+    }
+
+    /**
+     * 扫描热层，把修改时间早于 coldAfter 的文件迁移到冷层；跳过以点开头的目录（临时文件、缩略图）。
+     *
+     * @return 本次迁移的文件数
+     */
+    public int migrate() throws IOException {
+        Path root = hot.getRoot();
+        long cutoff = System.currentTimeMillis() - coldAfter.toMillis();
+        int[] moved = {0};
+        Files.walkFileTree(root, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+                if (!dir.equals(root) && dir.getFileName().toString().startsWith(".")) {
+                    return FileVisitResult.SKIP_SUBTREE;
+                }
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                if (attrs.isRegularFile() && attrs.lastModifiedTime().toMillis() < cutoff) {
+                    String key = root.relativize(file).toString().replace(file.getFileSystem().getSeparator(), "/");
+                    if (migrateOne(key, file, attrs.size())) {
+                        moved[0]++;
+                    }
+                }
+                return Thread.currentThread().isInterrupted() ? FileVisitResult.TERMINATE : FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFileFailed(Path file, IOException ex) {
+                return FileVisitResult.CONTINUE;
+            }
+        });
+        return moved[0];
+    }
+
+    private boolean migrateOne(String key, Path file, long size) {
+        try {
+            cold.put(key, file);
+            long uploaded = cold.size(key);
+            if (uploaded != size) {
+                log.warn("冷层副本大小不一致，保留本地文件: key={}, local={}, cold={}", key, size, uploaded);
+                return false;
+            }
+            if (Files.exists(file)) {
+                Files.deleteIfExists(file);
+                return true;
+            }
+            // 上传期间本地文件已被删除（引用归零），冷层副本也应删除
+            cold.delete(key);
+            return false;
+        } catch (NoSuchFileException ex) {
+            return false;
+        } catch (IOException ex) {
+            log.warn("迁移文件到冷层失败: key={}", key, ex);
+            return false;
+        }
+    }
+}
@@ -0,0 +1,18 @@
+-- 交易变更流：全局变更序列 + 交易变更序号
+CREATE TABLE change_sequences (
+    name VARCHAR(50) NOT NULL COMMENT '序列名称',
+    seq_value BIGINT NOT NULL COMMENT '当前已分配的最大序号',
+    PRIMARY KEY (name)
+) ENGINE = InnoDB
+  DEFAULT CHARSET = utf8mb4
+  COMMENT = '全局变更序列表';
+
+ALTER TABLE transactions
+    ADD COLUMN change_seq BIGINT NULL COMMENT '变更序号（变更流版本号）';
+
+-- 存量交易按 ID 回填序号，序列从当前最大 ID 开始
+UPDATE transactions SET change_seq = id;
+INSERT INTO change_sequences (name, seq_value)
+SELECT 'transactions', COALESCE(MAX(id), 0) FROM transactions;
+
+CREATE INDEX idx_transactions_change_seq ON transactions (change_seq);
@@ -0,0 +1,13 @@
+-- 跨节点通知总线（notification.bus.type=jdbc 时使用）
+CREATE TABLE notification_messages (
+    id BIGINT NOT NULL AUTO_INCREMENT,
+    node_id VARCHAR(64) NOT NULL COMMENT '发布节点标识',
+    recipient VARCHAR(50) NULL COMMENT '接收者用户名，为空表示广播',
+    event_type VARCHAR(100) NOT NULL COMMENT '事件类型',
+    payload TEXT NULL COMMENT '负载 JSON',
+    created_at DATETIME NOT NULL COMMENT '发布时间',
+    PRIMARY KEY (id),
+    KEY idx_notification_messages_created_at (created_at)
+) ENGINE = InnoDB
+  DEFAULT CHARSET = utf8mb4
+  COMMENT = '跨节点通知总线消息表';
@@ -0,0 +1,10 @@
+-- 内容寻址附件存储：按 SHA-256 去重的文件及其引用计数
+CREATE TABLE stored_files (
+    sha256 VARCHAR(64) NOT NULL COMMENT '内容 SHA-256',
+    file_size BIGINT NOT NULL COMMENT '文件大小（字节）',
+    ref_count BIGINT NOT NULL COMMENT '引用计数',
+    created_at DATETIME NOT NULL COMMENT '首次存储时间',
+    PRIMARY KEY (sha256)
+) ENGINE = InnoDB
+  DEFAULT CHARSET = utf8mb4
+  COMMENT = '内容寻址文件表';
@@ -0,0 +1,6 @@
+-- 附件静态压缩：记录文件在磁盘上的编码（NULL 为原始内容，gzip 为 GZIP 压缩）
+ALTER TABLE transaction_attachments
+    ADD COLUMN content_encoding VARCHAR(20) NULL COMMENT '存储编码（gzip 或空）';
+
+ALTER TABLE stored_files
+    ADD COLUMN content_encoding VARCHAR(20) NULL COMMENT '存储编码（gzip 或空）';
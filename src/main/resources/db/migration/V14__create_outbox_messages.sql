@@ -0,0 +1,16 @@
+-- 事务发件箱：业务事务内写入，提交后由后台投递器执行副作用（邮件、草稿生成等）
+CREATE TABLE outbox_messages (
+    id BIGINT NOT NULL AUTO_INCREMENT,
+    type VARCHAR(50) NOT NULL COMMENT '消息类型',
+    payload TEXT NULL COMMENT '负载 JSON',
+    status VARCHAR(20) NOT NULL COMMENT '状态：PENDING/DONE/FAILED',
+    attempts INT NOT NULL DEFAULT 0 COMMENT '已失败的投递次数',
+    next_attempt_at DATETIME NOT NULL COMMENT '下次可投递时间',
+    last_error VARCHAR(1000) NULL COMMENT '最近一次失败原因',
+    created_at DATETIME NOT NULL COMMENT '创建时间',
+    processed_at DATETIME NULL COMMENT '投递完成时间',
+    PRIMARY KEY (id),
+    KEY idx_outbox_messages_status_next (status, next_attempt_at)
+) ENGINE = InnoDB
+  DEFAULT CHARSET = utf8mb4
+  COMMENT = '事务发件箱消息表';
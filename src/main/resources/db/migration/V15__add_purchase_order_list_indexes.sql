@@ -0,0 +1,3 @@
+-- 采购单列表分页索引（按 created_at desc, id desc 排序）
+CREATE INDEX idx_purchase_orders_status_created ON purchase_orders (status, created_at, id);
+CREATE INDEX idx_purchase_orders_creator_created ON purchase_orders (created_by, created_at, id);
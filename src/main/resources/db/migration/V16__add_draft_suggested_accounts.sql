@@ -0,0 +1,4 @@
+-- 交易草稿建议科目（采购草稿批量生成时按批解析一次）
+ALTER TABLE transaction_drafts
+    ADD COLUMN suggested_debit_account_id BIGINT NULL COMMENT '建议借方科目 ID',
+    ADD COLUMN suggested_credit_account_id BIGINT NULL COMMENT '建议贷方科目 ID';
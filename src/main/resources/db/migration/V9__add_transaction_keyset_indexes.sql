@@ -0,0 +1,4 @@
+-- 交易列表键集分页索引（按 trade_date desc, id desc 排序）
+CREATE INDEX idx_transactions_date_id ON transactions (trade_date, id);
+CREATE INDEX idx_transactions_cleared_date_id ON transactions (cleared, trade_date, id);
+CREATE INDEX idx_transactions_creator_cleared_date ON transactions (created_by, cleared, trade_date, id);
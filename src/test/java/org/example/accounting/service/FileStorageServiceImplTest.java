@@ -0,0 +1,150 @@
+package org.example.accounting.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import org.example.accounting.domain.StoredFile;
+import org.example.accounting.repository.StoredFileRepository;
+import org.example.accounting.service.impl.FileStorageServiceImpl;
+import org.example.accounting.service.impl.LocalStorageBackend;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mockito;
+import org.springframework.mock.web.MockMultipartFile;
+
+/**
+ * FileStorageServiceImpl 内容寻址存储单元测试：去重、引用计数与缺失文件按记录编码补齐。
+ * stored_files 表用 Mockito 桩在内存 Map 上模拟。
+ */
+class FileStorageServiceImplTest {
+
+    private static final String TEXT = "对账单 2024-05 明细，\n".repeat(200);
+
+    @TempDir
+    Path tempDir;
+
+    private final Map<String, StoredFile> rows = new ConcurrentHashMap<>();
+    private LocalStorageBackend backend;
+    private FileStorageServiceImpl storage;
+
+    @BeforeEach
+    void setUp() {
+        backend = new LocalStorageBackend(tempDir.resolve("blobs"));
+        storage = new FileStorageServiceImpl(tempDir.resolve("uploads").toString(), "content-addressed", 2, true,
+                storedFileRepository(), backend);
+    }
+
+    @AfterEach
+    void tearDown() {
+        storage.shutdown();
+    }
+
+    @Test
+    void sameContent_shouldBeStoredOnceAndReleasedWithLastReference() throws IOException {
+        String first = storage.storeFile(file("a.txt", "text/plain", TEXT));
+        String second = storage.storeFile(file("b.txt", "text/plain", TEXT));
+
+        assertEquals(first, second);
+        assertEquals(2L, refCount(first));
+        assertTrue(storedSize(first) > 0);
+
+        storage.deleteFile(first);
+        assertEquals(1L, refCount(first));
+        assertTrue(storedSize(first) > 0);
+
+        storage.deleteFile(first);
+        assertFalse(rows.containsKey(first));
+        assertEquals(-1L, storedSize(first));
+    }
+
+    @Test
+    void storeFiles_shouldCountEachDuplicateAndCompressText() throws IOException {
+        List<FileStorageService.StoredUpload> uploads = storage.storeFiles(List.of(
+                file("a.txt", "text/plain", TEXT), file("b.txt", "text/plain", TEXT),
+                file("c.png", "image/png", "png")));
+
+        String sha = uploads.get(0).storedFilename();
+        assertEquals(sha, uploads.get(1).storedFilename());
+        assertEquals(2L, refCount(sha));
+        assertEquals("gzip", uploads.get(0).contentEncoding());
+        assertEquals("gzip", uploads.get(1).contentEncoding());
+        assertNull(uploads.get(2).contentEncoding());
+        assertEquals(TEXT.getBytes(StandardCharsets.UTF_8).length, uploads.get(0).size());
+        assertEquals(TEXT, read(sha, "gzip"));
+    }
+
+    @Test
+    void missingBlob_shouldBeRestoredInRecordedEncoding() throws IOException {
+        String sha = storage.storeFiles(List.of(file("a.txt", "text/plain", TEXT))).get(0).storedFilename();
+        assertEquals("gzip", rows.get(sha).getContentEncoding());
+        backend.delete(sha.substring(0, 2) + "/" + sha.substring(2, 4) + "/" + sha);
+
+        // storeFile 不压缩，但补齐的文件必须沿用记录的 gzip 编码，已有附件行才能正确读取
+        storage.storeFile(file("b.txt", "text/plain", TEXT));
+
+        assertEquals("gzip", rows.get(sha).getContentEncoding());
+        assertEquals(2L, refCount(sha));
+        assertEquals(TEXT, read(sha, "gzip"));
+    }
+
+    private long refCount(String sha) {
+        return rows.get(sha).getRefCount();
+    }
+
+    private long storedSize(String sha) throws IOException {
+        return storage.storedSize(sha);
+    }
+
+    private String read(String sha, String encoding) throws IOException {
+        try (InputStream in = storage.openDecoded(sha, encoding)) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    private static MockMultipartFile file(String name, String contentType, String content) {
+        return new MockMultipartFile("files", name, contentType, content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 存储服务用到的方法在 rows 上模拟，语义与 StoredFileRepository 的 JPQL 一致。
+     */
+    private StoredFileRepository storedFileRepository() {
+        StoredFileRepository repository = Mockito.mock(StoredFileRepository.class);
+        when(repository.incrementRef(anyString())).thenAnswer(inv -> rows.computeIfPresent(inv.getArgument(0),
+                (k, f) -> {
+                    f.setRefCount(f.getRefCount() + 1);
+                    return f;
+                }) != null ? 1 : 0);
+        when(repository.decrementRef(anyString())).thenAnswer(inv -> {
+            StoredFile f = rows.get(inv.<String>getArgument(0));
+            if (f == null || f.getRefCount() <= 0) return 0;
+            f.setRefCount(f.getRefCount() - 1);
+            return 1;
+        });
+        when(repository.deleteUnreferenced(anyString())).thenAnswer(inv -> rows.entrySet()
+                .removeIf(e -> e.getKey().equals(inv.getArgument(0)) && e.getValue().getRefCount() <= 0) ? 1 : 0);
+        when(repository.save(any(StoredFile.class))).thenAnswer(inv -> {
+            StoredFile f = inv.getArgument(0);
+            rows.put(f.getSha256(), f);
+            return f;
+        });
+        when(repository.findById(anyString()))
+                .thenAnswer(inv -> Optional.ofNullable(rows.get(inv.<String>getArgument(0))));
+        return repository;
+    }
+}
@@ -0,0 +1,125 @@
+package org.example.accounting.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.event.TransactionalEventListenerFactory;
+import org.springframework.transaction.support.AbstractPlatformTransactionManager;
+import org.springframework.transaction.support.DefaultTransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * NotificationCoalescer 单元测试：在最小的 Spring 上下文中验证提交后合并、负载形状与回滚丢弃。
+ */
+class NotificationCoalescerTest {
+
+    private record Published(String recipient, String event, Map<String, ?> payload) {
+    }
+
+    private final LinkedBlockingQueue<Published> published = new LinkedBlockingQueue<>();
+    private AnnotationConfigApplicationContext context;
+    private TransactionTemplate tx;
+
+    @BeforeEach
+    void setUp() {
+        context = new AnnotationConfigApplicationContext();
+        context.registerBean(TransactionalEventListenerFactory.class);
+        context.registerBean(NotificationBus.class,
+                () -> (recipient, event, payload) -> published.add(new Published(recipient, event, payload)));
+        context.registerBean(NotificationCoalescer.class,
+                () -> new NotificationCoalescer(context.getBean(NotificationBus.class), 50));
+        context.refresh();
+        tx = new TransactionTemplate(new NoOpTransactionManager());
+    }
+
+    @AfterEach
+    void tearDown() {
+        context.close();
+    }
+
+    @Test
+    void singleEvent_shouldPushOriginalPayloadWithIds() throws Exception {
+        tx.executeWithoutResult(s -> context.publishEvent(
+                NotificationEvent.toUser("alice", "transaction_rejected", 7L, Map.of("reason", "缺发票"))));
+
+        Published p = next();
+        assertEquals("alice", p.recipient());
+        assertEquals("transaction_rejected", p.event());
+        assertEquals("缺发票", p.payload().get("reason"));
+        assertEquals(List.of(7L), p.payload().get("ids"));
+        assertNull(p.payload().get("count"));
+        assertNull(published.poll(150, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    void eventsInWindow_shouldMergeIntoOnePushPerRecipientAndType() throws Exception {
+        tx.executeWithoutResult(s -> {
+            for (long id = 1; id <= 3; id++) {
+                context.publishEvent(NotificationEvent.broadcast("transaction_cleared", id, Map.of("transactionId", id)));
+            }
+            context.publishEvent(NotificationEvent.broadcast("transaction_cleared", 2L, Map.of("transactionId", 2L)));
+        });
+
+        Published p = next();
+        assertNull(p.recipient());
+        assertEquals(4, p.payload().get("count"));
+        assertEquals(List.of(1L, 2L, 3L), p.payload().get("ids"));
+        assertNull(p.payload().get("transactionId"));
+        assertNull(published.poll(150, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    void rolledBackEvents_shouldBeDropped() throws Exception {
+        tx.executeWithoutResult(s -> {
+            context.publishEvent(NotificationEvent.broadcast("transaction_cleared", 1L, Map.of("transactionId", 1L)));
+            s.setRollbackOnly();
+        });
+        tx.executeWithoutResult(s -> context.publishEvent(
+                NotificationEvent.broadcast("transaction_cleared", 2L, Map.of("transactionId", 2L))));
+
+        Published p = next();
+        assertEquals(List.of(2L), p.payload().get("ids"));
+        assertEquals(2L, p.payload().get("transactionId"));
+        assertTrue(published.isEmpty());
+    }
+
+    private Published next() throws InterruptedException {
+        Published p = published.poll(2, TimeUnit.SECONDS);
+        assertNotNull(p);
+        return p;
+    }
+
+    /**
+     * 不持有任何资源的事务管理器，只驱动事务同步回调（提交 / 回滚）。
+     */
+    private static final class NoOpTransactionManager extends AbstractPlatformTransactionManager {
+
+        @Override
+        protected Object doGetTransaction() {
+            return new Object();
+        }
+
+        @Override
+        protected void doBegin(Object transaction, TransactionDefinition definition) {
+        }
+
+        @Override
+        protected void doCommit(DefaultTransactionStatus status) {
+        }
+
+        @Override
+        protected void doRollback(DefaultTransactionStatus status) {
+        }
+    }
+}
@@ -0,0 +1,210 @@
+package org.example.accounting.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.when;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.example.accounting.domain.OutboxMessage;
+import org.example.accounting.domain.OutboxStatus;
+import org.example.accounting.repository.OutboxMessageRepository;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.data.domain.Pageable;
+
+/**
+ * OutboxDispatcher 单元测试：多节点认领竞争、失败退避与重试耗尽。
+ * outbox_messages 表用 Mockito 桩在内存 Map 上模拟，条件更新的语义与 OutboxMessageRepository 的 JPQL 一致。
+ */
+class OutboxDispatcherTest {
+
+    private static final String TYPE = "TEST";
+
+    private final Map<Long, OutboxMessage> rows = new ConcurrentHashMap<>();
+    private final AtomicInteger ids = new AtomicInteger();
+    private final Map<Integer, AtomicInteger> deliveries = new ConcurrentHashMap<>();
+    private volatile CountDownLatch findDueLatch;
+
+    @Test
+    void concurrentNodes_shouldDeliverEachMessageOnce() throws Exception {
+        for (int i = 0; i < 10; i++) {
+            insert(i, 0);
+        }
+        // 两个节点都先读到同一批到期消息，再竞争认领
+        findDueLatch = new CountDownLatch(2);
+        OutboxDispatcher a = dispatcher(10, false);
+        OutboxDispatcher b = dispatcher(10, false);
+        Thread ta = new Thread(a::poll);
+        Thread tb = new Thread(b::poll);
+        ta.start();
+        tb.start();
+        ta.join(5000);
+        tb.join(5000);
+
+        assertEquals(10, deliveries.size());
+        for (AtomicInteger count : deliveries.values()) {
+            assertEquals(1, count.get());
+        }
+        for (OutboxMessage m : rows.values()) {
+            assertEquals(OutboxStatus.DONE, m.getStatus());
+        }
+    }
+
+    @Test
+    void failedDelivery_shouldBackOffExponentiallyWithJitter() {
+        OutboxMessage message = insert(1, 0);
+        OutboxDispatcher dispatcher = dispatcher(10, true);
+
+        LocalDateTime before = LocalDateTime.now();
+        dispatcher.poll();
+        assertEquals(OutboxStatus.PENDING, message.getStatus());
+        assertEquals(1, message.getAttempts().intValue());
+        assertDelayBetween(before, message.getNextAttemptAt(), 500, 1000);
+        assertTrue(message.getLastError().contains("boom"));
+
+        // 未到重试时间不会再投递
+        dispatcher.poll();
+        assertEquals(1, deliveries.get(1).get());
+
+        message.setNextAttemptAt(LocalDateTime.now());
+        before = LocalDateTime.now();
+        dispatcher.poll();
+        assertEquals(2, message.getAttempts().intValue());
+        assertDelayBetween(before, message.getNextAttemptAt(), 1000, 2000);
+    }
+
+    @Test
+    void lastFailedAttempt_shouldMarkMessageFailed() {
+        OutboxMessage message = insert(1, 2);
+        OutboxDispatcher dispatcher = dispatcher(3, true);
+
+        dispatcher.poll();
+        assertEquals(OutboxStatus.FAILED, message.getStatus());
+        assertEquals(3, message.getAttempts().intValue());
+
+        message.setNextAttemptAt(LocalDateTime.now().minusSeconds(1));
+        dispatcher.poll();
+        assertEquals(1, deliveries.get(1).get());
+    }
+
+    private static void assertDelayBetween(LocalDateTime before, LocalDateTime next, long minMillis, long maxMillis) {
+        long delay = Duration.between(before, next).toMillis();
+        assertTrue(delay >= minMillis - 50 && delay <= maxMillis + 1000);
+    }
+
+    private OutboxDispatcher dispatcher(int maxAttempts, boolean failing) {
+        OutboxHandler handler = new OutboxHandler() {
+            @Override
+            public String type() {
+                return TYPE;
+            }
+
+            @Override
+            public void handle(JsonNode payload) {
+                deliveries.computeIfAbsent(payload.get("n").asInt(), k -> new AtomicInteger()).incrementAndGet();
+                if (failing) {
+                    throw new IllegalStateException("boom");
+                }
+            }
+        };
+        return new OutboxDispatcher(repository(), new ObjectMapper(), List.of(handler),
+                1000, 50, maxAttempts, 1000, 60_000, 300, 0);
+    }
+
+    private OutboxMessage insert(int n, int attempts) {
+        LocalDateTime now = LocalDateTime.now().minusSeconds(1);
+        OutboxMessage m = OutboxMessage.builder()
+                .id((long) ids.incrementAndGet())
+                .type(TYPE)
+                .payload("{\"n\":" + n + "}")
+                .status(OutboxStatus.PENDING)
+                .attempts(attempts)
+                .nextAttemptAt(now)
+                .createdAt(now)
+                .build();
+        rows.put(m.getId(), m);
+        return m;
+    }
+
+    /**
+     * findDue 返回行的快照（同数据库读取，之后其他节点的认领对快照不可见）；各方法在 rows 锁内执行，模拟行级原子性。
+     * 设置了 findDueLatch 时，findDue 在锁外等待另一节点也读完快照再返回。
+     */
+    private OutboxMessageRepository repository() {
+        OutboxMessageRepository repository = Mockito.mock(OutboxMessageRepository.class);
+        when(repository.findDue(any(LocalDateTime.class), any(Pageable.class))).thenAnswer(inv -> {
+            List<OutboxMessage> due;
+            synchronized (rows) {
+                due = findDue(inv.getArgument(0), inv.<Pageable>getArgument(1).getPageSize());
+            }
+            CountDownLatch latch = findDueLatch;
+            if (latch != null) {
+                latch.countDown();
+                latch.await(5, TimeUnit.SECONDS);
+            }
+            return due;
+        });
+        when(repository.claim(anyLong(), any(LocalDateTime.class), any(LocalDateTime.class))).thenAnswer(inv -> {
+            synchronized (rows) {
+                OutboxMessage m = rows.get(inv.<Long>getArgument(0));
+                if (m == null || m.getStatus() != OutboxStatus.PENDING
+                        || m.getNextAttemptAt().isAfter(inv.getArgument(1))) {
+                    return 0;
+                }
+                m.setNextAttemptAt(inv.getArgument(2));
+                return 1;
+            }
+        });
+        when(repository.markDone(anyLong(), any(LocalDateTime.class))).thenAnswer(inv -> {
+            synchronized (rows) {
+                OutboxMessage m = rows.get(inv.<Long>getArgument(0));
+                m.setStatus(OutboxStatus.DONE);
+                m.setProcessedAt(inv.getArgument(1));
+                m.setLastError(null);
+                return 1;
+            }
+        });
+        when(repository.markFailedAttempt(anyLong(), any(OutboxStatus.class), anyInt(), any(LocalDateTime.class),
+                any())).thenAnswer(inv -> {
+                    synchronized (rows) {
+                        OutboxMessage m = rows.get(inv.<Long>getArgument(0));
+                        m.setStatus(inv.getArgument(1));
+                        m.setAttempts(inv.getArgument(2));
+                        m.setNextAttemptAt(inv.getArgument(3));
+                        m.setLastError(inv.getArgument(4));
+                        return 1;
+                    }
+                });
+        return repository;
+    }
+
+    private List<OutboxMessage> findDue(LocalDateTime now, int limit) {
+        List<OutboxMessage> due = new ArrayList<>();
+        for (OutboxMessage m : rows.values()) {
+            if (m.getStatus() == OutboxStatus.PENDING && !m.getNextAttemptAt().isAfter(now)) {
+                due.add(copy(m));
+            }
+        }
+        due.sort(Comparator.comparing(OutboxMessage::getNextAttemptAt).thenComparing(OutboxMessage::getId));
+        return due.size() > limit ? new ArrayList<>(due.subList(0, limit)) : due;
+    }
+
+    private static OutboxMessage copy(OutboxMessage m) {
+        return OutboxMessage.builder().id(m.getId()).type(m.getType()).payload(m.getPayload()).status(m.getStatus())
+                .attempts(m.getAttempts()).nextAttemptAt(m.getNextAttemptAt()).createdAt(m.getCreatedAt()).build();
+    }
+}
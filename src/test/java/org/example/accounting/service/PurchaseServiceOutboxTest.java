@@ -0,0 +1,128 @@
+package org.example.accounting.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import org.example.accounting.domain.OutboxMessage;
+import org.example.accounting.domain.PurchaseOrder;
+import org.example.accounting.domain.PurchaseStatus;
+import org.example.accounting.domain.Supplier;
+import org.example.accounting.dto.PurchaseDtos.BatchReviewResult;
+import org.example.accounting.repository.OutboxMessageRepository;
+import org.example.accounting.repository.PurchaseOrderAuditRepository;
+import org.example.accounting.repository.PurchaseOrderRepository;
+import org.example.accounting.repository.SupplierRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.context.transaction.TestTransaction;
+
+/**
+ * 采购审核与事务发件箱的集成测试：副作用只以发件箱消息的形式随审核事务写入；
+ * 批量审核跳过非待审核的采购单，每个供应商一封邮件，草稿只发一条消息。
+ */
+@DataJpaTest
+class PurchaseServiceOutboxTest {
+
+    @Autowired
+    private SupplierRepository supplierRepository;
+    @Autowired
+    private PurchaseOrderRepository orderRepository;
+    @Autowired
+    private PurchaseOrderAuditRepository auditRepository;
+    @Autowired
+    private OutboxMessageRepository outboxRepository;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private OutboxDispatcher dispatcher;
+    private PurchaseService service;
+
+    @BeforeEach
+    void setUp() {
+        dispatcher = Mockito.mock(OutboxDispatcher.class);
+        OutboxService outboxService = new OutboxService(outboxRepository, dispatcher, objectMapper);
+        service = new PurchaseService(supplierRepository, orderRepository, auditRepository, outboxService,
+                Mockito.mock(SupplierSearchIndex.class));
+    }
+
+    @Test
+    void rolledBackReview_shouldEnqueueNothing() {
+        Supplier supplier = supplierRepository.save(supplier("华东纸业", "sales@example.com"));
+        Long orderId = orderRepository.save(order(supplier.getId(), PurchaseStatus.PENDING)).getId();
+
+        service.reviewOrder(orderId, true, null);
+        // 邮件与草稿两条消息只写在审核事务里
+        assertEquals(2, outboxRepository.count());
+
+        TestTransaction.flagForRollback();
+        TestTransaction.end();
+
+        assertEquals(0, outboxRepository.count());
+        assertEquals(0, orderRepository.count());
+        verify(dispatcher, never()).wakeUp();
+    }
+
+    @Test
+    void batchReview_shouldSkipNonPendingAndMergeEmailsPerSupplier() throws Exception {
+        Supplier paper = supplierRepository.save(supplier("华东纸业", "paper@example.com"));
+        Supplier ink = supplierRepository.save(supplier("墨盒商行", "ink@example.com"));
+        Long paper1 = orderRepository.save(order(paper.getId(), PurchaseStatus.PENDING)).getId();
+        Long paper2 = orderRepository.save(order(paper.getId(), PurchaseStatus.PENDING)).getId();
+        Long ink1 = orderRepository.save(order(ink.getId(), PurchaseStatus.PENDING)).getId();
+        Long approved = orderRepository.save(order(paper.getId(), PurchaseStatus.APPROVED)).getId();
+        Long rejected = orderRepository.save(order(ink.getId(), PurchaseStatus.REJECTED)).getId();
+        Long missing = rejected + 1000;
+
+        BatchReviewResult result = service.reviewOrders(
+                List.of(paper1, approved, paper2, missing, ink1, rejected), true, null);
+
+        assertEquals(Set.of(paper1, paper2, ink1), new HashSet<>(result.getReviewedIds()));
+        assertEquals(List.of(approved, missing, rejected), result.getSkippedIds());
+        assertEquals(1, auditRepository.findByOrderIdOrderByCreatedAtDesc(paper1).size());
+        assertEquals(0, auditRepository.findByOrderIdOrderByCreatedAtDesc(approved).size());
+
+        List<String> recipients = new ArrayList<>();
+        List<JsonNode> drafts = new ArrayList<>();
+        for (OutboxMessage m : outboxRepository.findAll()) {
+            JsonNode payload = objectMapper.readTree(m.getPayload());
+            if (OutboxService.EMAIL.equals(m.getType())) {
+                recipients.add(payload.get("to").asText());
+            } else if (OutboxService.PURCHASE_DRAFT.equals(m.getType())) {
+                drafts.add(payload);
+            }
+        }
+        assertEquals(2, recipients.size());
+        assertEquals(Set.of("paper@example.com", "ink@example.com"), new HashSet<>(recipients));
+        assertEquals(1, drafts.size());
+        Set<Long> draftIds = new HashSet<>();
+        drafts.get(0).get("purchaseOrderIds").forEach(id -> draftIds.add(id.asLong()));
+        assertEquals(Set.of(paper1, paper2, ink1), draftIds);
+    }
+
+    private static Supplier supplier(String name, String email) {
+        return Supplier.builder().name(name).email(email).productName("A4 打印纸").build();
+    }
+
+    private static PurchaseOrder order(Long supplierId, PurchaseStatus status) {
+        return PurchaseOrder.builder()
+                .createdBy("alice")
+                .createdAt(LocalDateTime.now())
+                .productName("A4 打印纸")
+                .supplierId(supplierId)
+                .quantity(10)
+                .unitPrice(new BigDecimal("25.00"))
+                .status(status)
+                .build();
+    }
+}
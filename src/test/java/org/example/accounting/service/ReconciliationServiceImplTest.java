@@ -28,7 +28,7 @@ class ReconciliationServiceImplTest {
     @BeforeEach
     void setUp() {
         transactionRepository = Mockito.mock(TransactionRepository.class);
-        service = new ReconciliationServiceImpl(transactionRepository);
+        service = new ReconciliationServiceImpl(transactionRepository, Mockito.mock(ChangeSequenceService.class));
     }
 
     @Test
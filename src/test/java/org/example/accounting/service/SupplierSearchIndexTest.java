@@ -0,0 +1,84 @@
+package org.example.accounting.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+import org.example.accounting.domain.Supplier;
+import org.example.accounting.repository.SupplierRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+
+/**
+ * SupplierSearchIndex 单元测试。
+ */
+class SupplierSearchIndexTest {
+
+    private SupplierSearchIndex index;
+
+    @BeforeEach
+    void setUp() {
+        SupplierRepository supplierRepository = Mockito.mock(SupplierRepository.class);
+        when(supplierRepository.findAll(any(Pageable.class))).thenReturn(Page.empty());
+        index = new SupplierSearchIndex(supplierRepository);
+        index.rebuild();
+    }
+
+    @Test
+    void search_shouldMatchSingleCharactersAndMixedText() {
+        index.index(supplier(1L, "华东纸业", "A4 打印纸"));
+        index.index(supplier(2L, "Acme Steel", "钢材"));
+
+        assertEquals(List.of(1L), ids(index.search("华", 10)));
+        assertEquals(List.of(1L), ids(index.search("a4", 10)));
+        assertEquals(List.of(2L), ids(index.search("钢", 10)));
+        assertEquals(List.of(2L), ids(index.search("ste", 10)));
+        assertTrue(index.search("华西", 10).isEmpty());
+    }
+
+    @Test
+    void search_shouldRankPrefixMatchesFirstAndApplyLimit() {
+        index.index(supplier(1L, "上海纸品", "纸箱"));
+        index.index(supplier(2L, "纸箱厂", "瓦楞纸"));
+        index.index(supplier(3L, "包装 纸箱供应", "胶带"));
+        index.index(supplier(4L, "办公用品", "纸箱"));
+
+        assertEquals(List.of(2L, 3L, 1L, 4L), ids(index.search("纸箱", 10)));
+        assertEquals(List.of(2L, 3L), ids(index.search("纸箱", 2)));
+    }
+
+    @Test
+    void search_shouldOrderByNameWhenQueryIsEmpty() {
+        index.index(supplier(1L, "b 纸业", "纸"));
+        index.index(supplier(2L, "ab", "纸"));
+        index.index(supplier(3L, "a 很长的供应商名称", "纸"));
+
+        assertEquals(List.of(3L, 2L, 1L), ids(index.search("", 10)));
+        assertEquals(List.of(3L, 2L), ids(index.search(" ", 2)));
+    }
+
+    @Test
+    void search_shouldReflectIncrementalUpdates() {
+        index.index(supplier(1L, "联想", "电脑"));
+        index.index(supplier(1L, "戴尔", "电脑"));
+        assertTrue(index.search("联想", 10).isEmpty());
+        assertEquals(List.of(1L), ids(index.search("戴尔", 10)));
+
+        index.remove(1L);
+        assertTrue(index.search("电脑", 10).isEmpty());
+        assertTrue(index.search("", 10).isEmpty());
+    }
+
+    private static Supplier supplier(Long id, String name, String productName) {
+        return Supplier.builder().id(id).name(name).productName(productName).build();
+    }
+
+    private static List<Long> ids(List<SupplierSearchIndex.Hit> hits) {
+        return hits.stream().map(SupplierSearchIndex.Hit::id).toList();
+    }
+}
@@ -0,0 +1,176 @@
+package org.example.accounting.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.example.accounting.service.impl.LocalStorageBackend;
+import org.example.accounting.service.impl.S3StorageBackend;
+import org.example.accounting.service.impl.TieredStorageBackend;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * S3 后端与分层存储单元测试：对象存储由进程内的 S3 替身（JDK HttpServer）模拟。
+ */
+class TieredStorageBackendTest {
+
+    private static final String BUCKET = "test-bucket";
+
+    @TempDir
+    Path tempDir;
+
+    private HttpServer server;
+    private final Map<String, byte[]> objects = new ConcurrentHashMap<>();
+    private volatile String lastAuthorization;
+    private S3StorageBackend s3;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", this::handle);
+        server.start();
+        s3 = new S3StorageBackend("http://127.0.0.1:" + server.getAddress().getPort(), "us-east-1", BUCKET,
+                "test-access", "test-secret");
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+    }
+
+    @Test
+    void s3_shouldRoundTripWithRangesAndConditionalPut() throws IOException {
+        Path source = write("src.bin", "0123456789");
+
+        assertTrue(s3.put("ab/cd/abcd", source));
+        assertFalse(s3.put("ab/cd/abcd", source));
+        assertTrue(lastAuthorization.startsWith("AWS4-HMAC-SHA256 Credential=test-access/"));
+        assertTrue(Files.exists(source));
+
+        assertEquals(10, s3.size("ab/cd/abcd"));
+        assertEquals("0123456789", read(s3.open("ab/cd/abcd"), Integer.MAX_VALUE));
+        assertEquals("345", read(s3.open("ab/cd/abcd", 3, 3), 3));
+
+        s3.delete("ab/cd/abcd");
+        assertEquals(-1, s3.size("ab/cd/abcd"));
+        assertThrows(NoSuchFileException.class, () -> s3.open("ab/cd/abcd"));
+    }
+
+    @Test
+    void tiered_shouldMigrateOldFilesAndReadFromEitherTier() throws IOException {
+        Path hotRoot = Files.createDirectories(tempDir.resolve("hot"));
+        LocalStorageBackend hot = new LocalStorageBackend(hotRoot);
+        TieredStorageBackend tiered = new TieredStorageBackend(hot, s3, Duration.ofDays(30));
+
+        tiered.put("aa/bb/old", write("old.part", "old content"));
+        tiered.put("aa/bb/new", write("new.part", "new content"));
+        Files.setLastModifiedTime(hotRoot.resolve("aa/bb/old"), FileTime.from(Instant.now().minus(Duration.ofDays(31))));
+        // 以点开头的目录（临时文件、缩略图）不迁移
+        Files.createDirectories(hotRoot.resolve(".thumbs"));
+        Files.writeString(hotRoot.resolve(".thumbs/x.jpg"), "thumb");
+        Files.setLastModifiedTime(hotRoot.resolve(".thumbs/x.jpg"), FileTime.from(Instant.EPOCH));
+
+        assertEquals(1, tiered.migrate());
+
+        assertNull(tiered.localPath("aa/bb/old"));
+        assertTrue(objects.containsKey("aa/bb/old"));
+        assertEquals("old content", read(tiered.open("aa/bb/old"), Integer.MAX_VALUE));
+        assertEquals("content", read(tiered.open("aa/bb/old", 4, 7), 7));
+        assertEquals(11, tiered.size("aa/bb/old"));
+
+        assertNotNull(tiered.localPath("aa/bb/new"));
+        assertFalse(objects.containsKey("aa/bb/new"));
+        assertTrue(Files.exists(hotRoot.resolve(".thumbs/x.jpg")));
+
+        tiered.delete("aa/bb/old");
+        assertFalse(tiered.exists("aa/bb/old"));
+    }
+
+    private Path write(String name, String content) throws IOException {
+        Path path = tempDir.resolve(name);
+        Files.createDirectories(path.getParent());
+        Files.writeString(path, content);
+        return path;
+    }
+
+    private static String read(InputStream in, int limit) throws IOException {
+        try (in) {
+            return new String(in.readNBytes(limit), StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * S3 替身：支持 PUT（If-None-Match: *）、GET（单区间 Range）、HEAD、DELETE。
+     */
+    private void handle(HttpExchange exchange) throws IOException {
+        lastAuthorization = exchange.getRequestHeaders().getFirst("Authorization");
+        String path = exchange.getRequestURI().getPath();
+        String key = path.substring(("/" + BUCKET + "/").length());
+        byte[] object = objects.get(key);
+        try (exchange) {
+            switch (exchange.getRequestMethod()) {
+                case "PUT" -> {
+                    byte[] body = exchange.getRequestBody().readAllBytes();
+                    if (object != null && "*".equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+                        exchange.sendResponseHeaders(412, -1);
+                        return;
+                    }
+                    objects.put(key, body);
+                    exchange.sendResponseHeaders(200, -1);
+                }
+                case "HEAD" -> {
+                    if (object == null) {
+                        exchange.sendResponseHeaders(404, -1);
+                        return;
+                    }
+                    exchange.getResponseHeaders().set("Content-Length", String.valueOf(object.length));
+                    exchange.sendResponseHeaders(200, -1);
+                }
+                case "GET" -> {
+                    if (object == null) {
+                        exchange.sendResponseHeaders(404, -1);
+                        return;
+                    }
+                    String range = exchange.getRequestHeaders().getFirst("Range");
+                    byte[] body = object;
+                    int status = 200;
+                    if (range != null) {
+                        String[] bounds = range.substring("bytes=".length()).split("-");
+                        int start = Integer.parseInt(bounds[0]);
+                        int end = Math.min(Integer.parseInt(bounds[1]), object.length - 1);
+                        body = Arrays.copyOfRange(object, start, end + 1);
+                        status = 206;
+                    }
+                    exchange.sendResponseHeaders(status, body.length);
+                    exchange.getResponseBody().write(body);
+                }
+                case "DELETE" -> {
+                    objects.remove(key);
+                    exchange.sendResponseHeaders(204, -1);
+                }
+                default -> exchange.sendResponseHeaders(405, -1);
+            }
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package org.example.accounting.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.time.LocalDateTime;
+import org.example.accounting.exception.BusinessException;
+import org.junit.jupiter.api.Test;
+
+/**
+ * TransactionCursor 单元测试。
+ */
+class TransactionCursorTest {
+
+    @Test
+    void encodeDecode_shouldRoundTrip() {
+        LocalDateTime date = LocalDateTime.of(2024, 3, 15, 9, 30, 12);
+        String token = new TransactionCursor(date, 42L).encode();
+
+        TransactionCursor decoded = TransactionCursor.decode(token);
+
+        assertEquals(date, decoded.getTradeDate());
+        assertEquals(42L, decoded.getId());
+    }
+
+    @Test
+    void decode_shouldReturnNull_whenBlank() {
+        assertNull(TransactionCursor.decode(null));
+        assertNull(TransactionCursor.decode(""));
+    }
+
+    @Test
+    void decode_shouldThrow_whenMalformed() {
+        assertThrows(BusinessException.class, () -> TransactionCursor.decode("not-a-cursor"));
+    }
+}
@@ -0,0 +1,140 @@
+package org.example.accounting.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.when;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import org.example.accounting.domain.Transaction;
+import org.example.accounting.repository.SplitRepository;
+import org.example.accounting.repository.TransactionRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+
+/**
+ * TransactionSearchIndex 单元测试。
+ */
+class TransactionSearchIndexTest {
+
+    private TransactionRepository transactionRepository;
+    private ChangeSequenceService changeSequenceService;
+    private TransactionSearchIndex index;
+
+    @BeforeEach
+    void setUp() {
+        transactionRepository = Mockito.mock(TransactionRepository.class);
+        changeSequenceService = Mockito.mock(ChangeSequenceService.class);
+        when(transactionRepository.findAll(any(Pageable.class))).thenReturn(Page.empty());
+        index = new TransactionSearchIndex(transactionRepository, Mockito.mock(SplitRepository.class),
+                changeSequenceService, 1000);
+        index.rebuild();
+    }
+
+    @Test
+    void search_shouldMatchChineseAndLatinSubstrings() {
+        index.index(txn(1L, "采购办公用品", "PO-1001", true), List.of("打印纸 A4"));
+        index.index(txn(2L, "支付房租", "RENT-2024", true), List.of());
+
+        assertEquals(List.of(1L), ids(index.search("办公", true, null)));
+        assertEquals(List.of(2L), ids(index.search("rent", true, null)));
+        assertEquals(List.of(1L), ids(index.search("打印纸", true, null)));
+        assertTrue(index.search("房费", true, null).isEmpty());
+    }
+
+    @Test
+    void search_shouldRankReferenceAboveDescriptionAboveMemo() {
+        index.index(txn(1L, "其他", "X", true), List.of("invoice 88"));
+        index.index(txn(2L, "invoice 88 付款", "Y", true), List.of());
+        index.index(txn(3L, "其他", "INVOICE-88", true), List.of());
+
+        assertEquals(List.of(3L, 2L, 1L), ids(index.search("invoice", true, null)));
+    }
+
+    @Test
+    void search_shouldApplyFiltersAndIncrementalUpdates() {
+        index.index(txn(1L, "差旅报销", "R-1", false), List.of());
+        assertTrue(index.search("差旅", true, null).isEmpty());
+
+        index.updateCleared(1L, true, 1L);
+        assertEquals(List.of(1L), ids(index.search("差旅", true, "alice")));
+        assertTrue(index.search("差旅", true, "bob").isEmpty());
+
+        index.index(txn(1L, "会议费用", "R-1", true, 2L), List.of());
+        assertTrue(index.search("差旅", true, null).isEmpty());
+        assertEquals(List.of(1L), ids(index.search("会议", true, null)));
+
+        index.remove(1L);
+        assertTrue(index.search("会议", true, null).isEmpty());
+    }
+
+    @Test
+    void rebuild_shouldNotOverwriteNewerVersion() {
+        // 重建读到的是审核前的旧行，审核提交后的写入先到
+        when(transactionRepository.findAll(any(Pageable.class)))
+                .thenReturn(new PageImpl<>(List.of(txn(1L, "差旅报销", "R-1", false, 3L))));
+        index.index(txn(1L, "差旅报销", "R-1", true, 4L), List.of());
+
+        index.rebuild();
+
+        assertEquals(List.of(1L), ids(index.search("差旅", true, null)));
+    }
+
+    @Test
+    void updateCleared_shouldIgnoreOlderVersion() {
+        index.index(txn(1L, "差旅报销", "R-1", true, 5L), List.of());
+
+        index.updateCleared(1L, false, 4L);
+
+        assertEquals(List.of(1L), ids(index.search("差旅", true, null)));
+    }
+
+    @Test
+    void catchUp_shouldApplyChangesCommittedElsewhere() {
+        when(changeSequenceService.current(anyString())).thenReturn(7L);
+        when(transactionRepository.findChangedBetween(eq(0L), eq(7L), any(Pageable.class)))
+                .thenReturn(List.of(txn(1L, "会议费用", "R-1", true, 7L)));
+
+        index.catchUp();
+
+        assertEquals(List.of(1L), ids(index.search("会议", true, null)));
+    }
+
+    @Test
+    void count_shouldMatchSearchWithoutFalseBigramHits() {
+        index.index(txn(1L, "ab-bc", "X", true), List.of());
+        index.index(txn(2L, "abc", "Y", true), List.of());
+        index.index(txn(3L, "abc", "Z", false), List.of());
+
+        assertEquals(1, index.count("abc", true, null));
+        assertEquals(index.search("abc", null, null).size(), index.count("abc", null, null));
+    }
+
+    @Test
+    void supports_shouldRequireAtLeastOneBigram() {
+        assertFalse(index.supports("a"));
+        assertFalse(index.supports(" "));
+        assertTrue(index.supports("ab"));
+    }
+
+    private static Transaction txn(Long id, String description, String reference, boolean cleared) {
+        return txn(id, description, reference, cleared, null);
+    }
+
+    private static Transaction txn(Long id, String description, String reference, boolean cleared, Long changeSeq) {
+        return Transaction.builder().id(id).description(description).reference(reference)
+                .tradeDate(LocalDateTime.now()).cleared(cleared).createdBy("alice").changeSeq(changeSeq).build();
+    }
+
+    private static List<Long> ids(List<TransactionSearchIndex.Hit> hits) {
+        return hits.stream().map(TransactionSearchIndex.Hit::id).toList();
+    }
+}
@@ -0,0 +1,153 @@
+package org.example.accounting.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import org.example.accounting.domain.Account;
+import org.example.accounting.domain.AccountType;
+import org.example.accounting.domain.Commodity;
+import org.example.accounting.domain.CommodityType;
+import org.example.accounting.domain.DebitCredit;
+import org.example.accounting.domain.Split;
+import org.example.accounting.domain.Transaction;
+import org.example.accounting.dto.TransactionDtos.CursorSlice;
+import org.example.accounting.dto.TransactionDtos.TransactionQueryRequest;
+import org.example.accounting.dto.TransactionDtos.TransactionResponse;
+import org.example.accounting.mapper.TransactionMapper;
+import org.example.accounting.repository.AccountRepository;
+import org.example.accounting.repository.CommodityRepository;
+import org.example.accounting.repository.SplitRepository;
+import org.example.accounting.repository.TransactionAttachmentRepository;
+import org.example.accounting.repository.TransactionQueryBuilder;
+import org.example.accounting.repository.TransactionRepository;
+import org.example.accounting.service.impl.BalanceCalculatorImpl;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+
+/**
+ * 交易列表接口的 SQL 语句数测试：每页语句数应为常量，不随行数增长（无 N+1）。
+ */
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+class TransactionServiceQueryCountTest {
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+    @Autowired
+    private SplitRepository splitRepository;
+    @Autowired
+    private AccountRepository accountRepository;
+    @Autowired
+    private CommodityRepository commodityRepository;
+    @Autowired
+    private EntityManager entityManager;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private TransactionService service;
+    private Statistics statistics;
+    private Long cashId;
+
+    @BeforeEach
+    void setUp() {
+        service = new TransactionService(transactionRepository, splitRepository, accountRepository,
+                commodityRepository, new TransactionMapper() { },
+                Mockito.mock(TransactionValidationService.class),
+                Mockito.mock(BalanceCalculatorImpl.class),
+                Mockito.mock(TransactionAttachmentRepository.class),
+                Mockito.mock(ApplicationEventPublisher.class),
+                Mockito.mock(TransactionSearchIndex.class),
+                new TransactionQueryBuilder(entityManager),
+                Mockito.mock(ChangeSequenceService.class),
+                new PurchaseAccountSuggester(accountRepository));
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        seed(30);
+    }
+
+    @Test
+    void pageTransactions_shouldIssueConstantStatementCount() {
+        long smallPage = statementsFor(() -> service.pageTransactions(PageRequest.of(0, 5)));
+        long largePage = statementsFor(() -> service.pageTransactions(PageRequest.of(0, 25)));
+
+        assertEquals(smallPage, largePage);
+        // 分页查询 + COUNT + 一次分录抓取
+        assertEquals(3, largePage);
+    }
+
+    @Test
+    void sliceUnclearedTransactions_shouldIssueConstantStatementCount() {
+        long smallPage = statementsFor(() -> service.sliceUnclearedTransactions(null, 5, null).getContent());
+        long largePage = statementsFor(() -> service.sliceUnclearedTransactions(null, 25, null).getContent());
+
+        assertEquals(smallPage, largePage);
+        // 键集查询 + 一次分录抓取
+        assertEquals(2, largePage);
+    }
+
+    @Test
+    void queryTransactions_shouldPushSplitFiltersIntoSql() {
+        TransactionQueryRequest request = new TransactionQueryRequest();
+        request.setAccountId(cashId);
+        request.setDirection("DEBIT");
+        request.setMinAmount(BigDecimal.ONE);
+        request.setSize(10);
+
+        long statements = statementsFor(() -> service.queryTransactions(request).getContent());
+        // 账户树（展开下级账户）+ 条件查询 + 一次分录抓取
+        assertEquals(3, statements);
+
+        CursorSlice<TransactionResponse> first = service.queryTransactions(request);
+        assertEquals(10, first.getSize());
+        assertEquals(true, first.isHasNext());
+
+        request.setDirection("CREDIT");
+        assertEquals(0, service.queryTransactions(request).getSize());
+    }
+
+    private long statementsFor(java.util.function.Supplier<?> call) {
+        entityManager.clear();
+        statistics.clear();
+        Object result = call.get();
+        List<TransactionResponse> rows = result instanceof Page<?> page
+                ? page.getContent().stream().map(TransactionResponse.class::cast).toList()
+                : ((List<?>) result).stream().map(TransactionResponse.class::cast).toList();
+        rows.forEach(r -> r.getSplits().forEach(s -> {
+            s.getAccountName();
+            s.getCommoditySymbol();
+        }));
+        return statistics.getPrepareStatementCount();
+    }
+
+    private void seed(int count) {
+        Commodity cny = commodityRepository.save(Commodity.builder()
+                .symbol("CNY-T").name("人民币").type(CommodityType.CURRENCY).fraction(2).build());
+        Account cash = accountRepository.save(Account.builder().code("T1001").name("现金")
+                .type(AccountType.ASSET).balance(BigDecimal.ZERO).active(true).currency(cny).build());
+        cashId = cash.getId();
+        Account income = accountRepository.save(Account.builder().code("T6001").name("收入")
+                .type(AccountType.INCOME).balance(BigDecimal.ZERO).active(true).currency(cny).build());
+        for (int i = 0; i < count; i++) {
+            Transaction t = transactionRepository.save(Transaction.builder()
+                    .tradeDate(LocalDateTime.now().minusMinutes(i))
+                    .description("txn " + i)
+                    .cleared(false)
+                    .build());
+            splitRepository.save(Split.builder().transaction(t).account(cash).commodity(cny)
+                    .amount(BigDecimal.TEN).direction(DebitCredit.DEBIT).build());
+            splitRepository.save(Split.builder().transaction(t).account(income).commodity(cny)
+                    .amount(BigDecimal.TEN).direction(DebitCredit.CREDIT).build());
+        }
+        entityManager.flush();
+    }
+}